@@ -0,0 +1,140 @@
+package com.agutierrez.pocket;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EncodingBenchmark
+{
+	/**
+	 * Prepares a scrambled cube, its coordinate and a permutation of 7
+	 * elements, all of them fixed for the whole trial.
+	 */
+	@Setup
+	public void setUp()
+	{
+		rubik = new PocketCube();
+		rubik.applySequence(SCRAMBLE);
+		coordinate = rubik.mapToInt();
+		target = rubik.getTarget();
+		targetArray = rubik.getTargetArray();
+		stickers = new int[PocketCube.INITIAL.length];
+		permutation = Util.getNthPermutation(PERMUTATION_INDEX, PERMUTATION_SIZE);
+		scratch = new int[PERMUTATION_SIZE];
+	}
+
+	@Benchmark
+	public int mapToInt()
+	{
+		return rubik.mapToInt();
+	}
+
+	@Benchmark
+	public String mapFromIntString() throws Exception
+	{
+		return rubik.mapFromInt(coordinate, target);
+	}
+
+	@Benchmark
+	public int[] mapFromIntArray()
+	{
+		rubik.mapFromInt(coordinate, targetArray, stickers);
+		return stickers;
+	}
+
+	@Benchmark
+	public int getIndex()
+	{
+		return MoveTables.getIndex(rubik);
+	}
+
+	@Benchmark
+	public int getPermutationIndex()
+	{
+		return Util.getPermutationIndex(permutation);
+	}
+
+	@Benchmark
+	public int[] getNthPermutation()
+	{
+		return Util.getNthPermutation(PERMUTATION_INDEX, PERMUTATION_SIZE);
+	}
+
+	@Benchmark
+	public int rank()
+	{
+		return Util.rank(permutation, PERMUTATION_SIZE);
+	}
+
+	@Benchmark
+	public int[] unrank()
+	{
+		Util.unrank(PERMUTATION_INDEX, PERMUTATION_SIZE, scratch);
+		return scratch;
+	}
+
+	/**
+	 * Sequence that scrambles the cube, 11 half turns long.
+	 */
+	private static final String SCRAMBLE = "RF'D2R'FD'F2RD2R'F";
+
+	/**
+	 * Number of elements of the ranked permutation, as many as cubies.
+	 */
+	private static final int PERMUTATION_SIZE = 8;
+
+	/**
+	 * Index of the ranked permutation.
+	 */
+	private static final int PERMUTATION_INDEX = 3141;
+
+	/**
+	 * The scrambled cube.
+	 */
+	private PocketCube rubik;
+
+	/**
+	 * The int that mapToInt returns for the scrambled cube.
+	 */
+	private int coordinate;
+
+	/**
+	 * Target configuration of the scrambled cube.
+	 */
+	private String target;
+
+	/**
+	 * Target configuration of the scrambled cube as an array.
+	 */
+	private int[] targetArray;
+
+	/**
+	 * Stickers written by mapFromIntArray.
+	 */
+	private int[] stickers;
+
+	/**
+	 * The permutation with index PERMUTATION_INDEX.
+	 */
+	private int[] permutation;
+
+	/**
+	 * Permutation written by unrank.
+	 */
+	private int[] scratch;
+}
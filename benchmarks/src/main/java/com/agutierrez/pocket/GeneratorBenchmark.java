@@ -0,0 +1,70 @@
+package com.agutierrez.pocket;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GeneratorBenchmark
+{
+	@Setup
+	public void setUp()
+	{
+		pool = new ForkJoinPool();
+	}
+
+	@TearDown
+	public void tearDown()
+	{
+		pool.shutdown();
+	}
+
+	/**
+	 * Breadth first search over the whole state space on a single thread.
+	 */
+	@Benchmark
+	public DistanceTable generate()
+	{
+		return DistanceTable.generate();
+	}
+
+	/**
+	 * Same search, with every level split among the threads of the pool.
+	 */
+	@Benchmark
+	public DistanceTable generateParallel()
+	{
+		return DistanceTable.generate(pool);
+	}
+
+	/**
+	 * Full table followed by the reduction to one permutation per symmetry
+	 * class.
+	 */
+	@Benchmark
+	public SymmetryTable generateSymmetry()
+	{
+		return SymmetryTable.generate();
+	}
+
+	/**
+	 * Pool shared by every call to generateParallel.
+	 */
+	private ForkJoinPool pool;
+}
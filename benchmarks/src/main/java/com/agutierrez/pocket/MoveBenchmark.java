@@ -0,0 +1,176 @@
+package com.agutierrez.pocket;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MoveBenchmark
+{
+	/**
+	 * Starts every trial from a scrambled cube. The moves keep changing it,
+	 * which is fine since every state costs the same to move.
+	 */
+	@Setup
+	public void setUp()
+	{
+		rubik = new PocketCube();
+		rubik.applySequence(SCRAMBLE);
+	}
+
+	@Benchmark
+	public PocketCube moveLeft()
+	{
+		rubik.moveLeft();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveCounterLeft()
+	{
+		rubik.moveCounterLeft();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveRight()
+	{
+		rubik.moveRight();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveCounterRight()
+	{
+		rubik.moveCounterRight();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveBack()
+	{
+		rubik.moveBack();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveCounterBack()
+	{
+		rubik.moveCounterBack();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveFront()
+	{
+		rubik.moveFront();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveCounterFront()
+	{
+		rubik.moveCounterFront();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveUp()
+	{
+		rubik.moveUp();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveCounterUp()
+	{
+		rubik.moveCounterUp();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveDown()
+	{
+		rubik.moveDown();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube moveCounterDown()
+	{
+		rubik.moveCounterDown();
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube parseToken()
+	{
+		rubik.parseToken(token);
+		return rubik;
+	}
+
+	@Benchmark
+	public PocketCube applySequence()
+	{
+		rubik.applySequence(SCRAMBLE);
+		return rubik;
+	}
+
+	/**
+	 * Same sequence through the move tables, for comparison with
+	 * applySequence.
+	 */
+	@Benchmark
+	public int moveTables()
+	{
+		int current = index;
+		for (int move : SCRAMBLE_MOVES)
+		{
+			current = MoveTables.move(current, move);
+		}
+		index = current;
+		return current;
+	}
+
+	/**
+	 * Sequence applied by applySequence and moveTables, 11 half turns long.
+	 */
+	private static final String SCRAMBLE = "RF'D2R'FD'F2RD2R'F";
+
+	/**
+	 * Positions in HALF_TURN_GENERATOR_CORNER_UBL_FIXED of the moves of
+	 * SCRAMBLE.
+	 */
+	private static final int[] SCRAMBLE_MOVES = { 3, 1, 8, 4, 0, 7, 2, 3, 8, 4, 0 };
+
+	/**
+	 * Token given to parseToken.
+	 */
+	@Param({ "R", "F", "D" })
+	public String token;
+
+	/**
+	 * The cube that every benchmark moves.
+	 */
+	private PocketCube rubik;
+
+	/**
+	 * The state that moveTables moves.
+	 */
+	private int index;
+}
@@ -0,0 +1,114 @@
+package com.agutierrez.pocket;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SolverBenchmark
+{
+	/**
+	 * Picks POSITIONS_NUMBER states exactly depth moves away from the solved
+	 * one. The random generator has a fixed seed, so every run solves the
+	 * same states.
+	 */
+	@Setup
+	public void setUp()
+	{
+		table = DistanceTable.generate();
+		positions = new int[POSITIONS_NUMBER];
+		Random random = new Random(SEED);
+		for (int i = 0; i < positions.length;)
+		{
+			int index = random.nextInt(MoveTables.STATES_NUMBER);
+			if (table.getDistance(index) == depth)
+			{
+				positions[i++] = index;
+			}
+		}
+	}
+
+	/**
+	 * Breadth first search from the state until the solved one is found.
+	 */
+	@Benchmark
+	public String solve()
+	{
+		return Solver.solve(next());
+	}
+
+	@Benchmark
+	public String solveBidirectional()
+	{
+		return Solver.solveBidirectional(next());
+	}
+
+	@Benchmark
+	public String solveIdaStar()
+	{
+		return Solver.solveIdaStar(next());
+	}
+
+	@Benchmark
+	public String solveDistanceTable()
+	{
+		return table.solve(next());
+	}
+
+	/**
+	 * Returns the next state to be solved, going through the positions in a
+	 * loop.
+	 */
+	private int next()
+	{
+		current = (current + 1) % positions.length;
+		return positions[current];
+	}
+
+	/**
+	 * Number of states solved in a loop.
+	 */
+	private static final int POSITIONS_NUMBER = 64;
+
+	/**
+	 * Seed of the generator that picks the states.
+	 */
+	private static final long SEED = 2014;
+
+	/**
+	 * Distance from the solved state of every state to be solved.
+	 */
+	@Param({ "4", "7", "9" })
+	public int depth;
+
+	/**
+	 * Table used to pick the states, and by solveDistanceTable.
+	 */
+	private DistanceTable table;
+
+	/**
+	 * The states to be solved.
+	 */
+	private int[] positions;
+
+	/**
+	 * Position of the last state solved.
+	 */
+	private int current;
+}
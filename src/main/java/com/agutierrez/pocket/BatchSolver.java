@@ -0,0 +1,180 @@
+package com.agutierrez.pocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class BatchSolver
+{
+	/**
+	 * Creates a solver that splits every batch among the given number of
+	 * threads. The move tables are shared by every solve, and so is the
+	 * distance table when one is given; without it each state is solved with
+	 * IDA*.
+	 *
+	 * @param table
+	 *            Distance table used to solve the states, or null.
+	 * @param threads
+	 *            Number of threads that solve each batch.
+	 */
+	public BatchSolver(DistanceTable table, int threads)
+	{
+		this.table = table;
+		this.threads = threads;
+		this.executor = Executors.newFixedThreadPool(threads);
+	}
+
+	/**
+	 * Solves the given positions, each of them a string as returned by
+	 * PocketCube.toString.
+	 *
+	 * @param positions
+	 *            The positions to be solved.
+	 * @return The solution of each position, in the same order.
+	 */
+	public String[] solve(String[] positions)
+	{
+		final String[] input = positions;
+		return solve(input.length, new Mapper()
+		{
+			public int getIndex(int i, PocketCube rubik)
+			{
+				rubik.setPosition(input[i]);
+				return MoveTables.getIndex(rubik);
+			}
+		});
+	}
+
+	/**
+	 * Solves the given positions, each of them an int as returned by
+	 * PocketCube.mapToInt.
+	 *
+	 * @param coordinates
+	 *            The positions to be solved.
+	 * @return The solution of each position, in the same order.
+	 */
+	public String[] solve(int[] coordinates)
+	{
+		final int[] input = coordinates;
+		return solve(input.length, new Mapper()
+		{
+			public int getIndex(int i, PocketCube rubik)
+			{
+				return MoveTables.toIndex(input[i]);
+			}
+		});
+	}
+
+	/**
+	 * Solves a single state with the distance table if there is one, or with
+	 * IDA* otherwise. Unlike solve(int[]), this takes the index of the move
+	 * tables rather than a coordinate of PocketCube.mapToInt.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The moves that solve the state.
+	 */
+	public String solveIndex(int index)
+	{
+		return table != null ? table.solve(index) : Solver.solveIdaStar(index);
+	}
+
+	/**
+	 * Stops the threads of this solver. No more batches can be solved after
+	 * calling this method.
+	 */
+	public void shutdown()
+	{
+		executor.shutdown();
+	}
+
+	/**
+	 * Splits the batch into a few contiguous chunks per thread, so a slow chunk
+	 * does not leave the other threads idle. Each chunk writes its solutions
+	 * straight into its own range of the result, so the order of the input is
+	 * kept without sorting.
+	 */
+	private String[] solve(int size, final Mapper mapper)
+	{
+		final String[] solutions = new String[size];
+		int chunks = threads * CHUNKS_PER_THREAD;
+		int chunk = Math.max(1, (size + chunks - 1) / chunks);
+		List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+
+		for (int from = 0; from < size; from += chunk)
+		{
+			final int start = from;
+			final int end = Math.min(size, from + chunk);
+			tasks.add(new Callable<Object>()
+			{
+				public Object call()
+				{
+					PocketCube rubik = new PocketCube();
+					for (int i = start; i < end; i++)
+					{
+						solutions[i] = solveIndex(mapper.getIndex(i, rubik));
+					}
+					return null;
+				}
+			});
+		}
+
+		try
+		{
+			for (Future<Object> future : executor.invokeAll(tasks))
+			{
+				future.get();
+			}
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while solving a batch.", e);
+		}
+		catch (ExecutionException e)
+		{
+			throw new IllegalStateException("Could not solve a batch.", e.getCause());
+		}
+		return solutions;
+	}
+
+	/**
+	 * Maps the nth element of a batch to the index of its state.
+	 */
+	private interface Mapper
+	{
+		/**
+		 * @param i
+		 *            Position of the element in the batch.
+		 * @param rubik
+		 *            Pocket cube owned by the calling thread, which can be used
+		 *            as scratch space.
+		 * @return The index of the state, as returned by MoveTables.getIndex.
+		 */
+		int getIndex(int i, PocketCube rubik);
+	}
+
+	/**
+	 * Number of chunks each batch is split into for every thread.
+	 */
+	private static final int CHUNKS_PER_THREAD = 4;
+
+	/**
+	 * Distance table shared by every solve, or null.
+	 */
+	private final DistanceTable table;
+
+	/**
+	 * Number of threads that solve each batch.
+	 */
+	private final int threads;
+
+	/**
+	 * Pool running the chunks of each batch.
+	 */
+	private final ExecutorService executor;
+}
@@ -0,0 +1,273 @@
+package com.agutierrez.pocket;
+
+public final class CubeState
+{
+	/**
+	 * Creates a state from its packed representation.
+	 */
+	private CubeState(long bits)
+	{
+		this.bits = bits;
+	}
+
+	/**
+	 * Returns the state with the given packed representation, as returned by
+	 * toLong.
+	 */
+	public static CubeState fromLong(long bits)
+	{
+		return new CubeState(bits);
+	}
+
+	/**
+	 * Returns the state with the given index.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The state represented by the index.
+	 */
+	public static CubeState fromIndex(int index)
+	{
+		int[] slots = new int[PocketCube.CUBIES_NUMBER];
+		Util.unrank(index / MoveTables.ORIENTATIONS_NUMBER, slots.length, slots);
+		int[] twists = new int[PocketCube.CUBIES_NUMBER];
+		Util.decodeOrientation(index % MoveTables.ORIENTATIONS_NUMBER, twists);
+
+		long bits = 0;
+		for (int cubie = 0; cubie < slots.length; cubie++)
+		{
+			int slot = slots[cubie];
+			bits |= (long) (cubie | (twists[slot] << CUBIE_BITS)) << (slot * SLOT_BITS);
+		}
+		return new CubeState(bits);
+	}
+
+	/**
+	 * Returns the state that the given pocket cube represents.
+	 */
+	public static CubeState of(PocketCube rubik)
+	{
+		return fromIndex(MoveTables.getIndex(rubik));
+	}
+
+	/**
+	 * Returns the index of this state in the move tables.
+	 */
+	public int toIndex()
+	{
+		int[] slots = new int[PocketCube.CUBIES_NUMBER];
+		int[] twists = new int[PocketCube.CUBIES_NUMBER];
+		for (int slot = 0; slot < slots.length; slot++)
+		{
+			slots[getCubie(bits, slot)] = slot;
+			twists[slot] = getTwist(bits, slot);
+		}
+		return Util.rank(slots, slots.length) * MoveTables.ORIENTATIONS_NUMBER
+			+ Util.encodeOrientation(twists);
+	}
+
+	/**
+	 * Returns the packed representation of this state.
+	 */
+	public long toLong()
+	{
+		return bits;
+	}
+
+	/**
+	 * Returns a new pocket cube showing this state, with the colors of the
+	 * initial configuration.
+	 */
+	public PocketCube toPocketCube()
+	{
+		int[][] order = PocketCubeConstants.FINAL_ORDER;
+		int[] stickers = new int[PocketCube.INITIAL.length];
+
+		for (int slot = 0; slot < order.length; slot++)
+		{
+			int[] cubie = order[getCubie(bits, slot)];
+			int twist = getTwist(bits, slot);
+			for (int j = 0; j < cubie.length; j++)
+			{
+				stickers[order[slot][j]] = PocketCube.INITIAL[cubie[(j + twist) % cubie.length]];
+			}
+		}
+
+		PocketCube rubik = new PocketCube();
+		rubik.rubik = stickers;
+		return rubik;
+	}
+
+	/**
+	 * Returns the state reached after applying the given generator move.
+	 *
+	 * @param move
+	 *            The position of the move in HALF_TURN_GENERATOR_CORNER_UBL_FIXED.
+	 */
+	public CubeState move(int move)
+	{
+		return new CubeState(move(bits, move));
+	}
+
+	/**
+	 * Returns the state reached after applying the given generator move, such
+	 * as "R'" or "D2".
+	 */
+	public CubeState move(String token)
+	{
+		String[] moves = PocketCubeConstants.HALF_TURN_GENERATOR_CORNER_UBL_FIXED;
+		for (int i = 0; i < moves.length; i++)
+		{
+			if (moves[i].equals(token))
+			{
+				return move(i);
+			}
+		}
+		throw new IllegalArgumentException(token + " does not keep the upper back left cubie fixed.");
+	}
+
+	/**
+	 * Applies the given generator move to a packed state. Every slot is moved
+	 * to its new place with its twist updated by a single table lookup.
+	 *
+	 * @param bits
+	 *            The packed state.
+	 * @param move
+	 *            The position of the move in HALF_TURN_GENERATOR_CORNER_UBL_FIXED.
+	 * @return The packed state after the move.
+	 */
+	public static long move(long bits, int move)
+	{
+		long[][] table = SLOT_TABLE[move];
+		long result = 0;
+		for (int slot = 0; slot < table.length; slot++)
+		{
+			result |= table[slot][(int) (bits >>> (slot * SLOT_BITS)) & SLOT_MASK];
+		}
+		return result;
+	}
+
+	/**
+	 * Determines if this state is the solved one.
+	 */
+	public boolean isSolved()
+	{
+		return bits == SOLVED_BITS;
+	}
+
+	/**
+	 * Determines if the given packed state is the solved one.
+	 */
+	public static boolean isSolved(long bits)
+	{
+		return bits == SOLVED_BITS;
+	}
+
+	/**
+	 * Returns the cubie, from 0 to 7, found in the given slot of a packed
+	 * state.
+	 */
+	public static int getCubie(long bits, int slot)
+	{
+		return (int) (bits >>> (slot * SLOT_BITS)) & CUBIE_MASK;
+	}
+
+	/**
+	 * Returns the twist, from 0 to 2, of the cubie found in the given slot of a
+	 * packed state.
+	 */
+	public static int getTwist(long bits, int slot)
+	{
+		return (int) (bits >>> (slot * SLOT_BITS + CUBIE_BITS)) & TWIST_MASK;
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other instanceof CubeState && ((CubeState) other).bits == bits;
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return (int) (bits ^ (bits >>> 32));
+	}
+
+	@Override
+	public String toString()
+	{
+		return Long.toHexString(bits);
+	}
+
+	/**
+	 * Fills SLOT_TABLE from the slot and twist each generator move applies to
+	 * the cubie of every slot.
+	 */
+	private static long[][][] createSlotTable()
+	{
+		long[][][] table = new long[MoveTables.MOVES_NUMBER][PocketCube.CUBIES_NUMBER][SLOT_MASK + 1];
+		for (int move = 0; move < table.length; move++)
+		{
+			for (int slot = 0; slot < PocketCube.CUBIES_NUMBER; slot++)
+			{
+				int target = MoveTables.SLOT_MOVE[move][slot];
+				for (int value = 0; value <= SLOT_MASK; value++)
+				{
+					int twist = ((value >>> CUBIE_BITS) + MoveTables.TWIST_MOVE[move][slot]) % 3;
+					long moved = (value & CUBIE_MASK) | (twist << CUBIE_BITS);
+					table[move][slot][value] = moved << (target * SLOT_BITS);
+				}
+			}
+		}
+		return table;
+	}
+
+	/**
+	 * Number of bits used to store the cubie of a slot.
+	 */
+	private static final int CUBIE_BITS = 3;
+
+	/**
+	 * Number of bits used to store a slot.
+	 */
+	private static final int SLOT_BITS = 5;
+
+	/**
+	 * Mask the bits of a slot that hold the cubie.
+	 */
+	private static final int CUBIE_MASK = (1 << CUBIE_BITS) - 1;
+
+	/**
+	 * Mask the bits of a slot that hold the twist, once shifted.
+	 */
+	private static final int TWIST_MASK = 3;
+
+	/**
+	 * Mask the bits of a slot.
+	 */
+	private static final int SLOT_MASK = (1 << SLOT_BITS) - 1;
+
+	/**
+	 * Packed representation of the solved state, every cubie in its own slot
+	 * with no twist.
+	 */
+	private static final long SOLVED_BITS = fromIndex(MoveTables.SOLVED_INDEX).bits;
+
+	/**
+	 * For each generator move, each slot and each possible content of that
+	 * slot, the bits of the resulting state that it sets.
+	 */
+	private static final long[][][] SLOT_TABLE = createSlotTable();
+
+	/**
+	 * The solved state.
+	 */
+	public static final CubeState SOLVED = new CubeState(SOLVED_BITS);
+
+	/**
+	 * Packed representation of this state. Each of the 8 slots of FINAL_ORDER
+	 * takes 5 bits: the lower 3 hold the cubie found in the slot and the upper
+	 * 2 its twist.
+	 */
+	private final long bits;
+}
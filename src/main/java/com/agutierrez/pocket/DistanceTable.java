@@ -0,0 +1,512 @@
+package com.agutierrez.pocket;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.zip.CRC32;
+
+public class DistanceTable implements Distances
+{
+	/**
+	 * Creates a table from its packed contents, two states per byte.
+	 *
+	 * @param table
+	 *            Array with the distance of every state.
+	 */
+	public DistanceTable(byte[] table)
+	{
+		this(ByteBuffer.wrap(table));
+	}
+
+	/**
+	 * Creates a table backed by the given buffer, which holds the packed
+	 * contents starting at its position.
+	 *
+	 * @param table
+	 *            Buffer with the distance of every state, two states per byte.
+	 */
+	private DistanceTable(ByteBuffer table)
+	{
+		if (table.remaining() != BYTES_NUMBER)
+		{
+			throw new IllegalArgumentException("A distance table must have " + BYTES_NUMBER + " bytes.");
+		}
+		this.table = table.slice();
+	}
+
+	/**
+	 * Maps a table file written by the write method into memory. The file is
+	 * mapped read only, so no heap is used for the table and every JVM that
+	 * maps the same file shares the same pages of the operating system cache.
+	 *
+	 * @param file
+	 *            The file to be mapped.
+	 * @return The table stored in the file.
+	 * @throws IOException
+	 *             If the file can not be read or is not a valid table.
+	 */
+	public static DistanceTable map(File file) throws IOException
+	{
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = input.getChannel();
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+
+			if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC)
+			{
+				throw new IOException(file + " is not a distance table.");
+			}
+			int version = buffer.getInt();
+			if (version != VERSION)
+			{
+				throw new IOException("Unsupported distance table version " + version + ".");
+			}
+			if (buffer.getInt() != MoveTables.STATES_NUMBER || buffer.remaining() != BYTES_NUMBER + 4)
+			{
+				throw new IOException(file + " does not have the expected number of states.");
+			}
+			int checksum = buffer.getInt();
+			if (checksum != getChecksum(buffer))
+			{
+				throw new IOException(file + " is corrupted, checksum does not match.");
+			}
+			return new DistanceTable(buffer);
+		}
+		finally
+		{
+			// The mapping stays valid after the channel is closed.
+			input.close();
+		}
+	}
+
+	/**
+	 * Writes this table into the given file, preceded by a header holding a
+	 * magic number, the format version, the number of states and a checksum
+	 * of the contents.
+	 *
+	 * @param file
+	 *            The file to be written.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public void write(File file) throws IOException
+	{
+		ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(MoveTables.STATES_NUMBER);
+		header.putInt(getChecksum(table.duplicate()));
+		header.flip();
+
+		FileOutputStream output = new FileOutputStream(file);
+		try
+		{
+			FileChannel channel = output.getChannel();
+			ByteBuffer contents = table.duplicate();
+			contents.clear();
+			while (header.hasRemaining())
+			{
+				channel.write(header);
+			}
+			while (contents.hasRemaining())
+			{
+				channel.write(contents);
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	/**
+	 * Computes the CRC32 checksum of the remaining bytes of the given buffer,
+	 * without moving its position.
+	 */
+	private static int getChecksum(ByteBuffer buffer)
+	{
+		CRC32 crc = new CRC32();
+		crc.update(buffer.duplicate());
+		return (int) crc.getValue();
+	}
+
+	/**
+	 * Walks the whole space of states reachable with the moves that keep the
+	 * upper back left cubie fixed, level by level, storing the number of half
+	 * turns each state is away from the solved one.
+	 *
+	 * @return The table with the distance of all the 7!*3^6 states.
+	 */
+	public static DistanceTable generate()
+	{
+		byte[] table = new byte[BYTES_NUMBER];
+		for (int i = 0; i < table.length; i++)
+		{
+			table[i] = (byte) 0xFF;
+		}
+		set(table, MoveTables.SOLVED_INDEX, 0);
+		METRICS.searchGrew(table.length);
+
+		int found = 1;
+		long states = 1;
+		try
+		{
+			for (int depth = 0; found > 0; depth++)
+			{
+				METRICS.generatorLevel(depth, states);
+				GeneratorDepthEvent event = new GeneratorDepthEvent();
+				event.begin();
+				event.depth = depth;
+				event.frontierSize = found;
+				found = 0;
+				for (int index = 0; index < MoveTables.STATES_NUMBER; index++)
+				{
+					if (get(table, index) != depth)
+					{
+						continue;
+					}
+					for (int move = 0; move < MoveTables.MOVES_NUMBER; move++)
+					{
+						int newIndex = MoveTables.move(index, move);
+						if (get(table, newIndex) == UNKNOWN)
+						{
+							set(table, newIndex, depth + 1);
+							found++;
+						}
+					}
+				}
+				states += found;
+				event.newStates = found;
+				event.commit();
+			}
+		}
+		finally
+		{
+			METRICS.generatorLevel(-1, states);
+			// The table is now the result, no longer a search structure.
+			METRICS.searchGrew(-table.length);
+		}
+		return new DistanceTable(table);
+	}
+
+	/**
+	 * Parallel version of generate. Each level of the search is split in
+	 * ranges of states that are expanded by the given pool, and the pool is
+	 * joined before moving on to the next level. The distances are kept in an
+	 * atomic array, eight states per int, and a state is claimed with a
+	 * compare and set so it is counted exactly once no matter how many threads
+	 * reach it.
+	 *
+	 * @param pool
+	 *            The pool that expands each level.
+	 * @return The table with the distance of all the 7!*3^6 states.
+	 */
+	public static DistanceTable generate(ForkJoinPool pool)
+	{
+		AtomicIntegerArray distances = new AtomicIntegerArray((MoveTables.STATES_NUMBER + 7) / 8);
+		for (int i = 0; i < distances.length(); i++)
+		{
+			distances.set(i, -1);
+		}
+		distances.set(0, ~0xF);
+		long bytes = 4L * distances.length();
+		METRICS.searchGrew(bytes);
+
+		int found = 1;
+		long states = 1;
+		try
+		{
+			for (int depth = 0; found > 0; depth++)
+			{
+				METRICS.generatorLevel(depth, states);
+				GeneratorDepthEvent event = new GeneratorDepthEvent();
+				event.begin();
+				event.depth = depth;
+				event.frontierSize = found;
+				found = pool.invoke(new LevelTask(distances, depth, 0, MoveTables.STATES_NUMBER));
+				states += found;
+				event.newStates = found;
+				event.commit();
+			}
+		}
+		finally
+		{
+			METRICS.generatorLevel(-1, states);
+			METRICS.searchGrew(-bytes);
+		}
+
+		byte[] table = new byte[BYTES_NUMBER];
+		for (int i = 0; i < table.length; i++)
+		{
+			table[i] = (byte) (distances.get(i >> 2) >> ((i & 3) << 3));
+		}
+		return new DistanceTable(table);
+	}
+
+	/**
+	 * Expands the states of a range that are at a given depth, splitting the
+	 * range in halves until it is small enough to be done by one thread.
+	 */
+	private static class LevelTask extends RecursiveTask<Integer>
+	{
+		LevelTask(AtomicIntegerArray distances, int depth, int from, int to)
+		{
+			this.distances = distances;
+			this.depth = depth;
+			this.from = from;
+			this.to = to;
+		}
+
+		/**
+		 * Returns the number of states found at the next depth.
+		 */
+		@Override
+		protected Integer compute()
+		{
+			if (to - from > TASK_SIZE)
+			{
+				int middle = (from + to) >>> 1;
+				LevelTask left = new LevelTask(distances, depth, from, middle);
+				left.fork();
+				int right = new LevelTask(distances, depth, middle, to).compute();
+				return left.join() + right;
+			}
+
+			int found = 0;
+			for (int index = from; index < to; index++)
+			{
+				if (get(index) != depth)
+				{
+					continue;
+				}
+				for (int move = 0; move < MoveTables.MOVES_NUMBER; move++)
+				{
+					if (claim(MoveTables.move(index, move)))
+					{
+						found++;
+					}
+				}
+			}
+			return found;
+		}
+
+		private int get(int index)
+		{
+			return (distances.get(index >> 3) >> ((index & 7) << 2)) & 0xF;
+		}
+
+		/**
+		 * Sets the distance of the given state to the next depth if it has not
+		 * been reached yet.
+		 *
+		 * @return True if this call was the one that reached the state.
+		 */
+		private boolean claim(int index)
+		{
+			int shift = (index & 7) << 2;
+			int mask = 0xF << shift;
+			int value = (depth + 1) << shift;
+			int current;
+			do
+			{
+				current = distances.get(index >> 3);
+				if ((current & mask) != (UNKNOWN << shift))
+				{
+					return false;
+				}
+			}
+			while (!distances.compareAndSet(index >> 3, current, (current & ~mask) | value));
+			return true;
+		}
+
+		/**
+		 * Number of states below which a range is not split any more.
+		 */
+		private static final int TASK_SIZE = 1 << 15;
+
+		private static final long serialVersionUID = 1L;
+
+		private final AtomicIntegerArray distances;
+		private final int depth;
+		private final int from;
+		private final int to;
+	}
+
+	/**
+	 * Returns the minimum number of half turns needed to solve the state with
+	 * the given index.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The distance to the solved state, between 0 and MAX_DEPTH.
+	 */
+	@Override
+	public int getDistance(int index)
+	{
+		return (table.get(index >> 1) >> ((index & 1) << 2)) & 0xF;
+	}
+
+	/**
+	 * Convenience method that returns the minimum number of half turns needed
+	 * to solve the given pocket cube.
+	 */
+	public int getDistance(PocketCube rubik)
+	{
+		return getDistance(MoveTables.getIndex(rubik));
+	}
+
+	/**
+	 * Returns an optimal solution for the state with the given index.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The moves that solve the given state.
+	 */
+	public String solve(int index)
+	{
+		return solve(this, index);
+	}
+
+	/**
+	 * Returns an optimal solution for the state with the given index using
+	 * the given distances. At each step we look for a neighbour one move
+	 * closer to the solved state, which always exists, so no search is
+	 * needed. The walk is reported to SolverMetrics and recorded as a
+	 * SolveEvent, named after the class of the distances, like any other
+	 * solve.
+	 *
+	 * @param distances
+	 *            Exact distance of every state to the solved one.
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The moves that solve the given state.
+	 */
+	protected static String solve(Distances distances, int index)
+	{
+		long time = System.nanoTime();
+		long expanded = 0;
+		METRICS.searchStarted(0);
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		int start = index;
+		String solution = null;
+		String[] moves = PocketCubeConstants.HALF_TURN_GENERATOR_CORNER_UBL_FIXED;
+		StringBuilder algorithm = new StringBuilder();
+
+		try
+		{
+			for (int distance = distances.getDistance(index); distance > 0; distance--)
+			{
+				int move = 0;
+				int newIndex = MoveTables.move(index, move);
+				while (distances.getDistance(newIndex) != distance - 1)
+				{
+					move++;
+					newIndex = MoveTables.move(index, move);
+				}
+				expanded += move + 1;
+				algorithm.append(moves[move]);
+				index = newIndex;
+			}
+			solution = algorithm.toString();
+			return solution;
+		}
+		finally
+		{
+			METRICS.searchFinished(expanded, 0, System.nanoTime() - time);
+			event.finish(distances.getClass().getSimpleName(), start, solution, expanded);
+		}
+	}
+
+	/**
+	 * Convenience method that returns an optimal solution for the given pocket
+	 * cube.
+	 */
+	public String solve(PocketCube rubik)
+	{
+		return solve(MoveTables.getIndex(rubik));
+	}
+
+	/**
+	 * Counts how many states are at each distance from the solved state.
+	 *
+	 * @return Array whose nth position holds the number of states n moves away.
+	 */
+	public int[] getHistogram()
+	{
+		int[] histogram = new int[MAX_DEPTH + 1];
+		for (int index = 0; index < MoveTables.STATES_NUMBER; index++)
+		{
+			histogram[getDistance(index)]++;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Reads the distance of the given state from a packed table. The state
+	 * with an even index is stored in the lower 4 bits of the byte.
+	 */
+	private static int get(byte[] table, int index)
+	{
+		return (table[index >> 1] >> ((index & 1) << 2)) & 0xF;
+	}
+
+	/**
+	 * Writes the distance of the given state into a packed table.
+	 */
+	private static void set(byte[] table, int index, int distance)
+	{
+		int shift = (index & 1) << 2;
+		table[index >> 1] = (byte) ((table[index >> 1] & ~(0xF << shift)) | (distance << shift));
+	}
+
+	/**
+	 * Longest distance between any state and the solved one, known as God's
+	 * number for the pocket cube in the half turn metric.
+	 */
+	public static final int MAX_DEPTH = 11;
+
+	/**
+	 * Value stored for states that have not been reached yet.
+	 */
+	private static final int UNKNOWN = 0xF;
+
+	/**
+	 * Metrics the generation reports its progress to.
+	 */
+	private static final SolverMetrics METRICS = SolverMetrics.getInstance();
+
+	/**
+	 * Number of bytes needed to store the distance of every state in 4 bits.
+	 */
+	public static final int BYTES_NUMBER = (MoveTables.STATES_NUMBER + 1) / 2;
+
+	/**
+	 * Identifies distance table files, the ASCII for "PKDT".
+	 */
+	private static final int MAGIC = 0x504B4454;
+
+	/**
+	 * Version of the file format written by this class.
+	 */
+	private static final int VERSION = 1;
+
+	/**
+	 * Number of bytes before the contents of a table file: the magic number,
+	 * the version, the number of states and the checksum.
+	 */
+	private static final int HEADER_SIZE = 16;
+
+	/**
+	 * Distance of every state, two states per byte.
+	 */
+	private final ByteBuffer table;
+}
@@ -0,0 +1,15 @@
+package com.agutierrez.pocket;
+
+public interface Distances
+{
+	/**
+	 * Returns the minimum number of half turns needed to solve the state with
+	 * the given index.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The distance to the solved state, between 0 and
+	 *         DistanceTable.MAX_DEPTH.
+	 */
+	int getDistance(int index);
+}
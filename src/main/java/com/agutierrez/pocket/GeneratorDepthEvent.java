@@ -0,0 +1,28 @@
+package com.agutierrez.pocket;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.agutierrez.pocket.GeneratorDepth")
+@Label("Generator Depth")
+@Category("Pocket Cube")
+@Description("The expansion of one depth of the distance table generation")
+@StackTrace(false)
+public class GeneratorDepthEvent extends Event
+{
+	@Label("Depth")
+	@Description("Depth of the states expanded")
+	int depth;
+
+	@Label("Frontier Size")
+	@Description("Number of states at the depth expanded")
+	long frontierSize;
+
+	@Label("New States")
+	@Description("Number of states found at the next depth")
+	long newStates;
+}
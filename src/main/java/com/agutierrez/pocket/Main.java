@@ -6,16 +6,23 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.util.Arrays;
 
 public class Main 
 {
 	/**
 	 * Main entry point of the game, creates the engine object and starts the
-	 * game loop.
+	 * game loop. With "server" as the first argument a SolverServer is
+	 * started instead, taking the rest of the arguments.
 	 * @throws Exception 
 	 */
 	public static void main(String args[]) throws Exception
 	{
+		if (args.length > 0 && args[0].equals(SERVER))
+		{
+			SolverServer.main(Arrays.copyOfRange(args, 1, args.length));
+			return;
+		}
 		PocketCube p = new PocketCube();
 		p.gameLoop();
 		/**
@@ -130,14 +137,14 @@ public class Main
 	
 	public static void write2(PocketCube p) throws IOException
 	{		
-		FileOutputStream out = new FileOutputStream("bytes.txt");
+		PositionWriter out = new PositionWriter(new File("bytes.txt"), false);
         
 		
 		for(int i = 0; i < 5040; i++) 
         {
         	for(int j = 0; j < 729; j++) 
         	{
-        		out.write(p.mapToByteArray(i, j));
+        		out.write((i << PocketCube.PERMUTATION_OFFSET) | (j << PocketCube.ORIENTATION_OFFSET));
         	}
         }
         
@@ -162,4 +169,9 @@ public class Main
         out.close();
 
 	}
+
+	/**
+	 * Argument that starts the solver server.
+	 */
+	private static final String SERVER = "server";
 }
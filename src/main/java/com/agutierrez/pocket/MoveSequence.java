@@ -0,0 +1,289 @@
+package com.agutierrez.pocket;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public final class MoveSequence
+{
+	/**
+	 * Creates a sequence from its move codes, which are not copied.
+	 */
+	private MoveSequence(byte[] moves)
+	{
+		this.moves = moves;
+	}
+
+	/**
+	 * Parses an algorithm such as "RF'D2" once, so it can then be applied as
+	 * many times as needed without looking at the string again. Like the
+	 * regular expression RUBIK_PATTERN, any character that does not start a
+	 * move is skipped.
+	 *
+	 * @param sequence
+	 *            The algorithm to be parsed.
+	 * @return The sequence of moves found in the algorithm.
+	 */
+	public static MoveSequence parse(String sequence)
+	{
+		byte[] moves = new byte[sequence.length()];
+		int size = 0;
+		for (int i = 0; i < sequence.length(); i++)
+		{
+			int face = FACES.indexOf(sequence.charAt(i));
+			if (face < 0)
+			{
+				continue;
+			}
+			int turn = 0;
+			if (i + 1 < sequence.length())
+			{
+				turn = TURNS.indexOf(sequence.charAt(i + 1)) + 1;
+				if (turn > 0)
+				{
+					i++;
+				}
+			}
+			moves[size++] = (byte) (face * 3 + turn);
+		}
+		return new MoveSequence(Arrays.copyOf(moves, size));
+	}
+
+	/**
+	 * Returns the sequence made of the given moves.
+	 *
+	 * @param moves
+	 *            Positions of the moves in HALF_TURN_METRIC_MOVES.
+	 */
+	public static MoveSequence of(int... moves)
+	{
+		byte[] codes = new byte[moves.length];
+		for (int i = 0; i < moves.length; i++)
+		{
+			if (moves[i] < 0 || moves[i] >= MOVES_NUMBER)
+			{
+				throw new IllegalArgumentException(moves[i] + " is not a half turn metric move.");
+			}
+			codes[i] = (byte) moves[i];
+		}
+		return new MoveSequence(codes);
+	}
+
+	/**
+	 * Applies this sequence to the given pocket cube.
+	 */
+	public void apply(PocketCube rubik)
+	{
+		apply(rubik.rubik);
+	}
+
+	/**
+	 * Applies this sequence to an array of stickers. Each move reads the 24
+	 * stickers through its permutation into a second array, and the two
+	 * arrays swap roles for the next move.
+	 *
+	 * @param stickers
+	 *            The stickers of a pocket cube, which are overwritten.
+	 */
+	public void apply(int[] stickers)
+	{
+		int[] current = stickers;
+		int[] next = new int[stickers.length];
+		for (byte move : moves)
+		{
+			int[] permutation = STICKER_MOVES[move];
+			for (int k = 0; k < permutation.length; k++)
+			{
+				next[k] = current[permutation[k]];
+			}
+			int[] aux = current;
+			current = next;
+			next = aux;
+		}
+		if (current != stickers)
+		{
+			System.arraycopy(current, 0, stickers, 0, stickers.length);
+		}
+	}
+
+	/**
+	 * Returns the sequence that undoes this one, with the moves in reverse
+	 * order and each of them inverted.
+	 */
+	public MoveSequence inverse()
+	{
+		byte[] inverse = new byte[moves.length];
+		for (int i = 0; i < moves.length; i++)
+		{
+			int move = moves[moves.length - 1 - i];
+			inverse[i] = (byte) (move - move % 3 + INVERSE_TURN[move % 3]);
+		}
+		return new MoveSequence(inverse);
+	}
+
+	/**
+	 * Returns the number of moves of this sequence, each half turn counting
+	 * as one.
+	 */
+	public int size()
+	{
+		return moves.length;
+	}
+
+	/**
+	 * Returns the nth move of this sequence.
+	 *
+	 * @return The position of the move in HALF_TURN_METRIC_MOVES.
+	 */
+	public int getMove(int i)
+	{
+		return moves[i];
+	}
+
+	@Override
+	public boolean equals(Object other)
+	{
+		return other instanceof MoveSequence && Arrays.equals(((MoveSequence) other).moves, moves);
+	}
+
+	@Override
+	public int hashCode()
+	{
+		return Arrays.hashCode(moves);
+	}
+
+	/**
+	 * Returns the algorithm in the same notation that parse accepts.
+	 */
+	@Override
+	public String toString()
+	{
+		StringBuilder algorithm = new StringBuilder();
+		for (byte move : moves)
+		{
+			algorithm.append(PocketCubeConstants.HALF_TURN_METRIC_MOVES[move]);
+		}
+		return algorithm.toString();
+	}
+
+	/**
+	 * Applies every move once to a cube whose stickers are numbered, so that
+	 * the sticker found in each position afterwards tells where it came from.
+	 */
+	private static int[][] createStickerMoves()
+	{
+		int[][] permutations = new int[MOVES_NUMBER][];
+		for (int move = 0; move < MOVES_NUMBER; move++)
+		{
+			PocketCube cube = new PocketCube();
+			for (int k = 0; k < cube.rubik.length; k++)
+			{
+				cube.rubik[k] = k;
+			}
+			cube.parseToken(PocketCubeConstants.HALF_TURN_METRIC_MOVES[move]);
+			permutations[move] = cube.rubik;
+		}
+		return permutations;
+	}
+
+	/**
+	 * Returns the map of stickers of applying one map and then the other, in
+	 * the format of STICKER_MOVES.
+	 */
+	protected static int[] compose(int[] first, int[] second)
+	{
+		int[] result = new int[second.length];
+		for (int k = 0; k < result.length; k++)
+		{
+			result[k] = first[second[k]];
+		}
+		return result;
+	}
+
+	/**
+	 * Finds the 24 rotations of the whole cube as maps of stickers, starting
+	 * from the identity and turning the cube around two different axes with
+	 * "RL'" and "UD'" until no new rotation shows up.
+	 */
+	private static int[][] createRotations()
+	{
+		int[] identity = new int[PocketCube.INITIAL.length];
+		for (int k = 0; k < identity.length; k++)
+		{
+			identity[k] = k;
+		}
+		int[][] turns = { parse("RL'").toStickers(), parse("UD'").toStickers() };
+
+		List<int[]> rotations = new ArrayList<int[]>();
+		rotations.add(identity);
+		for (int i = 0; i < rotations.size(); i++)
+		{
+			for (int[] turn : turns)
+			{
+				int[] rotation = compose(rotations.get(i), turn);
+				boolean found = false;
+				for (int[] other : rotations)
+				{
+					found |= Arrays.equals(other, rotation);
+				}
+				if (!found)
+				{
+					rotations.add(rotation);
+				}
+			}
+		}
+		return rotations.toArray(new int[rotations.size()][]);
+	}
+
+	/**
+	 * Returns the map of stickers of the whole sequence, in the format of
+	 * STICKER_MOVES.
+	 */
+	protected int[] toStickers()
+	{
+		int[] stickers = new int[PocketCube.INITIAL.length];
+		for (int k = 0; k < stickers.length; k++)
+		{
+			stickers[k] = k;
+		}
+		apply(stickers);
+		return stickers;
+	}
+
+	/**
+	 * Number of moves in HALF_TURN_METRIC_MOVES.
+	 */
+	public static final int MOVES_NUMBER = PocketCubeConstants.HALF_TURN_METRIC_MOVES.length;
+
+	/**
+	 * Faces in the order of HALF_TURN_METRIC_MOVES, which lists the clockwise,
+	 * counterclockwise and half turn of each of them.
+	 */
+	private static final String FACES = "FBLRDU";
+
+	/**
+	 * Suffixes of the counterclockwise and half turns.
+	 */
+	private static final String TURNS = "'2";
+
+	/**
+	 * Turn that cancels a clockwise, counterclockwise and half turn.
+	 */
+	private static final int[] INVERSE_TURN = { 1, 0, 2 };
+
+	/**
+	 * For each move, the position each sticker comes from.
+	 */
+	protected static final int[][] STICKER_MOVES = createStickerMoves();
+
+	/**
+	 * The 24 rotations of the whole cube as maps of stickers, the identity
+	 * being the first one.
+	 */
+	protected static final int[][] ROTATIONS = createRotations();
+
+	/**
+	 * Positions of the moves in HALF_TURN_METRIC_MOVES.
+	 */
+	private final byte[] moves;
+}
@@ -0,0 +1,217 @@
+package com.agutierrez.pocket;
+
+public class MoveTables
+{
+	/**
+	 * Returns the state reached after applying the given generator move to the
+	 * given state index. This is the only operation a coordinate based search
+	 * needs, and it is just two table lookups.
+	 *
+	 * @param index
+	 *            The index of the state, as returned by getIndex.
+	 * @param move
+	 *            The position of the move in HALF_TURN_GENERATOR_CORNER_UBL_FIXED.
+	 * @return The index of the resulting state.
+	 */
+	public static int move(int index, int move)
+	{
+		return PERMUTATION_MOVE[move][index / ORIENTATIONS_NUMBER] * ORIENTATIONS_NUMBER
+			+ ORIENTATION_MOVE[move][index % ORIENTATIONS_NUMBER];
+	}
+
+	/**
+	 * Returns the face turned by the given generator move. Two consecutive
+	 * moves on the same face can always be merged into one, so searches use
+	 * this to prune the same way Solver.getValidMoves does.
+	 *
+	 * @param move
+	 *            The position of the move in HALF_TURN_GENERATOR_CORNER_UBL_FIXED.
+	 * @return 0 for the front face, 1 for the right face and 2 for the down face.
+	 */
+	public static int getFace(int move)
+	{
+		return move / 3;
+	}
+
+	/**
+	 * Convenience method that returns the index of the state that the given
+	 * pocket cube represents.
+	 *
+	 * @param cube
+	 *            The pocket cube to be mapped.
+	 * @return The index of the state, between 0 and STATES_NUMBER - 1.
+	 */
+	public static int getIndex(PocketCube cube)
+	{
+		return toIndex(cube.mapToInt());
+	}
+
+	/**
+	 * Converts an int as returned by PocketCube.mapToInt into the index used by
+	 * the move tables. Both share the permutation, but mapToInt stores the
+	 * orientation of each cubie while the tables store the orientation found
+	 * in each slot, which is what lets permutation and orientation be moved
+	 * independently.
+	 *
+	 * @param coordinate
+	 *            An int as returned by PocketCube.mapToInt.
+	 * @return The index of the state, between 0 and STATES_NUMBER - 1.
+	 */
+	public static int toIndex(int coordinate)
+	{
+		int permutation = (PocketCube.PERMUTATION_MASK & coordinate) >> PocketCube.PERMUTATION_OFFSET;
+		int orientation = (PocketCube.ORIENTATION_MASK & coordinate) >> PocketCube.ORIENTATION_OFFSET;
+
+		int[] slots = new int[PocketCube.CUBIES_NUMBER];
+		Util.unrank(permutation, slots.length, slots);
+		int[] cubieOrientation = new int[PocketCube.CUBIES_NUMBER];
+		Util.decodeOrientation(orientation, cubieOrientation);
+		int[] slotOrientation = new int[PocketCube.CUBIES_NUMBER];
+
+		for (int i = 0; i < PocketCube.CUBIES_NUMBER; i++)
+		{
+			slotOrientation[slots[i]] = cubieOrientation[i];
+		}
+		return permutation * ORIENTATIONS_NUMBER + Util.encodeOrientation(slotOrientation);
+	}
+
+	/**
+	 * Converts an index used by the move tables back into the int that
+	 * PocketCube.mapToInt would return for the same state.
+	 *
+	 * @param index
+	 *            The index of the state, between 0 and STATES_NUMBER - 1.
+	 * @return An int in the format of PocketCube.mapToInt.
+	 */
+	public static int toCoordinate(int index)
+	{
+		int permutation = index / ORIENTATIONS_NUMBER;
+
+		int[] slots = new int[PocketCube.CUBIES_NUMBER];
+		Util.unrank(permutation, slots.length, slots);
+		int[] slotOrientation = new int[PocketCube.CUBIES_NUMBER];
+		Util.decodeOrientation(index % ORIENTATIONS_NUMBER, slotOrientation);
+		int[] cubieOrientation = new int[PocketCube.CUBIES_NUMBER];
+
+		for (int i = 0; i < PocketCube.CUBIES_NUMBER; i++)
+		{
+			cubieOrientation[i] = slotOrientation[slots[i]];
+		}
+		return (permutation << PocketCube.PERMUTATION_OFFSET)
+			| (Util.encodeOrientation(cubieOrientation) << PocketCube.ORIENTATION_OFFSET);
+	}
+
+	/**
+	 * Fills the tables. Each generator move is applied once to a solved cube to
+	 * find out where it sends the cubie of every slot and how it twists it;
+	 * every entry is then derived from that without touching a PocketCube.
+	 */
+	private static void init()
+	{
+		String[] moves = PocketCubeConstants.HALF_TURN_GENERATOR_CORNER_UBL_FIXED;
+		int[][] order = PocketCubeConstants.FINAL_ORDER;
+
+		for (int m = 0; m < moves.length; m++)
+		{
+			PocketCube cube = new PocketCube();
+			cube.applySequence(moves[m]);
+
+			int[] target = SLOT_MOVE[m];
+			int[] twist = TWIST_MOVE[m];
+			for (int i = 0; i < order.length; i++)
+			{
+				target[i] = cube.getCubieIndex(order[i]);
+				twist[i] = cube.getCubieOrientation(target[i], order[i]);
+			}
+
+			int[] slots = new int[order.length];
+			for (int p = 0; p < PERMUTATIONS_NUMBER; p++)
+			{
+				Util.unrank(p, slots.length, slots);
+				for (int i = 0; i < slots.length; i++)
+				{
+					slots[i] = target[slots[i]];
+				}
+				PERMUTATION_MOVE[m][p] = Util.rank(slots, slots.length);
+			}
+
+			int[] current = new int[order.length];
+			int[] next = new int[order.length];
+			for (int o = 0; o < ORIENTATIONS_NUMBER; o++)
+			{
+				Util.decodeOrientation(o, current);
+				for (int s = 0; s < current.length; s++)
+				{
+					next[target[s]] = (current[s] + twist[s]) % 3;
+				}
+				ORIENTATION_MOVE[m][o] = Util.encodeOrientation(next);
+			}
+		}
+	}
+
+	/**
+	 * Number of moves in HALF_TURN_GENERATOR_CORNER_UBL_FIXED.
+	 */
+	public static final int MOVES_NUMBER = PocketCubeConstants.HALF_TURN_GENERATOR_CORNER_UBL_FIXED.length;
+
+	/**
+	 * Number of permutations of the 7 cubies that are free to move.
+	 */
+	public static final int PERMUTATIONS_NUMBER = 5040;
+
+	/**
+	 * Number of orientations of the 7 cubies that are free to move.
+	 */
+	public static final int ORIENTATIONS_NUMBER = 729;
+
+	/**
+	 * Number of states once the upper back left cubie is fixed, 7!*3^6.
+	 */
+	public static final int STATES_NUMBER = PERMUTATIONS_NUMBER * ORIENTATIONS_NUMBER;
+
+	/**
+	 * Index of the solved state.
+	 */
+	public static final int SOLVED_INDEX = 0;
+
+	/**
+	 * Position of the move that cancels each of the generator moves.
+	 */
+	public static final int[] INVERSE_MOVE = { 1,
+		0,
+		2,
+		4,
+		3,
+		5,
+		7,
+		6,
+		8
+	};
+
+	/**
+	 * Slot to which each generator move sends the cubie found in each slot.
+	 */
+	protected static final int[][] SLOT_MOVE = new int[MOVES_NUMBER][PocketCube.CUBIES_NUMBER];
+
+	/**
+	 * Twist that each generator move adds to the cubie found in each slot.
+	 */
+	protected static final int[][] TWIST_MOVE = new int[MOVES_NUMBER][PocketCube.CUBIES_NUMBER];
+
+	/**
+	 * Permutation reached after applying each generator move to each
+	 * permutation.
+	 */
+	public static final int[][] PERMUTATION_MOVE = new int[MOVES_NUMBER][PERMUTATIONS_NUMBER];
+
+	/**
+	 * Orientation reached after applying each generator move to each
+	 * orientation.
+	 */
+	public static final int[][] ORIENTATION_MOVE = new int[MOVES_NUMBER][ORIENTATIONS_NUMBER];
+
+	static
+	{
+		init();
+	}
+}
@@ -0,0 +1,81 @@
+package com.agutierrez.pocket;
+
+public class PatternDatabase
+{
+	/**
+	 * Returns a lower bound of the number of half turns needed to solve the
+	 * state with the given permutation and orientation. Solving the whole cube
+	 * takes at least as many moves as solving either part on its own, so the
+	 * bound never overestimates and can be used as an IDA* heuristic.
+	 *
+	 * @param permutation
+	 *            Permutation of the state, between 0 and 5039.
+	 * @param orientation
+	 *            Orientation of the state, between 0 and 728.
+	 * @return The larger of the distances of the permutation and the
+	 *         orientation.
+	 */
+	public static int getDistance(int permutation, int orientation)
+	{
+		return Math.max(PERMUTATION_DISTANCE[permutation], ORIENTATION_DISTANCE[orientation]);
+	}
+
+	/**
+	 * Convenience method that returns the lower bound for the state with the
+	 * given index.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 */
+	public static int getDistance(int index)
+	{
+		return getDistance(index / MoveTables.ORIENTATIONS_NUMBER, index % MoveTables.ORIENTATIONS_NUMBER);
+	}
+
+	/**
+	 * Runs a breadth first search over one of the move tables, starting from
+	 * the solved coordinate, and stores how many moves away every coordinate
+	 * is.
+	 *
+	 * @param moves
+	 *            Move table, indexed by move and then by coordinate.
+	 * @return Array with the distance of every coordinate.
+	 */
+	private static byte[] create(int[][] moves)
+	{
+		int size = moves[0].length;
+		byte[] distances = new byte[size];
+		boolean[] visited = new boolean[size];
+		int[] queue = new int[size];
+		int head = 0;
+		int tail = 0;
+
+		visited[0] = true;
+		queue[tail++] = 0;
+		while (head < tail)
+		{
+			int coordinate = queue[head++];
+			for (int move = 0; move < moves.length; move++)
+			{
+				int newCoordinate = moves[move][coordinate];
+				if (!visited[newCoordinate])
+				{
+					visited[newCoordinate] = true;
+					distances[newCoordinate] = (byte) (distances[coordinate] + 1);
+					queue[tail++] = newCoordinate;
+				}
+			}
+		}
+		return distances;
+	}
+
+	/**
+	 * Distance of every permutation to the solved one, ignoring orientation.
+	 */
+	public static final byte[] PERMUTATION_DISTANCE = create(MoveTables.PERMUTATION_MOVE);
+
+	/**
+	 * Distance of every orientation to the solved one, ignoring permutation.
+	 */
+	public static final byte[] ORIENTATION_DISTANCE = create(MoveTables.ORIENTATION_MOVE);
+}
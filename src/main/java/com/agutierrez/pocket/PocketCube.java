@@ -1,8 +1,8 @@
 package com.agutierrez.pocket;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Random;
 import java.util.Scanner;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -21,7 +21,7 @@ public class PocketCube
 	 */
 	public void init()
 	{
-		rubik = INITIAL;
+		rubik = INITIAL.clone();
 	}
 
 	/**
@@ -50,28 +50,26 @@ public class PocketCube
 
 		for (int i = 0; i < array.length; i++)
 		{
-			String number = rubik.substring(i,
-				i + 1);
-			array[i] = Integer.parseInt(number);
+			array[i] = Character.digit(rubik.charAt(i), 10);
+			if (array[i] < 0)
+			{
+				throw new NumberFormatException("Not valid character.");
+			}
 		}
 		return array;
 	}
 
 	/**
 	 * Convenience method that determines if the Pocket Cube state that this
-	 * instance represents is in its solved state. The array contains all the
-	 * solved positions when the cube orientation is not taken into account.
+	 * instance represents is in its solved state, whatever the orientation of
+	 * the whole cube. The colors of the upper back left cubie tell which of
+	 * the solved configurations is the only one the cube can be in, so a
+	 * single comparison is enough.
 	 */
 	public boolean isSolved()
 	{
-		for (int i = 0; i < SOLVED.length; i++)
-		{
-			if (toString().equals(SOLVED[i]))
-			{
-				return true;
-			}
-		}
-		return false;
+		int target = getTargetIndex();
+		return target >= 0 && Arrays.equals(rubik, SOLVED_STICKERS[target]);
 	}
 	
 	/**
@@ -83,7 +81,7 @@ public class PocketCube
 	 */
 	public int getCubieIndex(int [] arr)
 	{
-		return getCubieIndex(arr, this.rubik, this.getTarget());
+		return getCubieIndex(arr, this.rubik, this.getTargetArray());
 	}
 	
 	/**
@@ -171,7 +169,7 @@ public class PocketCube
 	 */
 	public int getCubieOrientation(int index, int[] arr)
 	{
-		return getCubieOrientation(index, arr, this.rubik,  toArray(this.getTarget()));
+		return getCubieOrientation(index, arr, this.rubik, this.getTargetArray());
 	}
 	
 	/**
@@ -205,31 +203,77 @@ public class PocketCube
 	
 	/**
 	 * Maps the current configurations of this object to an int. In particular,
-	 * we need 23 bits to store the information for the cube's position.
+	 * we need 23 bits to store the information for the cube's position. The
+	 * target is found once, and then each slot is read as a triple of colors
+	 * that CUBIE_LOOKUP turns into the cubie found there and its orientation,
+	 * so no String is built and no cubie is compared against the others.
 	 * 
 	 * @return Int that represents the current configuration.
+	 * @throws IllegalArgumentException
+	 *             If a slot does not show the colors of any cubie.
 	 */
 	public int mapToInt()
 	{
-		int permutation;
-		int orientation;
-		
-		String orientationString = "";
-		String permutationString = "";
-		for(int i = 0; i < PocketCubeConstants.FINAL_ORDER.length; i++)
+		int[][] order = PocketCubeConstants.FINAL_ORDER;
+		int[] permutation = new int[CUBIES_NUMBER];
+		int[] orientation = new int[CUBIES_NUMBER];
+		int target = getTargetIndex();
+		if (target < 0)
 		{
-			int index = getCubieIndex(PocketCubeConstants.FINAL_ORDER[i]);
-			permutationString = permutationString + index;
-			orientationString = orientationString + getCubieOrientation(index, PocketCubeConstants.FINAL_ORDER[i]);
-			
+			throw new IllegalArgumentException("The upper back left slot does not show the colors of any cubie.");
 		}
-		permutation = Util.getPermutationIndex(toArray(permutationString));
-		
-		orientation = Integer.parseInt(orientationString.substring(2), 3);
-		
-		int result = (permutation << PocketCube.PERMUTATION_OFFSET) | (orientation << PocketCube.ORIENTATION_OFFSET);
-		
-		return result;
+		int base = target * COLOR_TRIPLES;
+
+		for(int slot = 0; slot < order.length; slot++)
+		{
+			int triple = getColorTriple(order[slot]);
+			int cubie = triple >= 0 ? CUBIE_LOOKUP[base + triple] : -1;
+			if (cubie < 0)
+			{
+				throw new IllegalArgumentException("Slot " + slot + " does not show the colors of any cubie.");
+			}
+			permutation[cubie / 3] = slot;
+			orientation[cubie / 3] = cubie % 3;
+		}
+
+		return (Util.rank(permutation, CUBIES_NUMBER) << PocketCube.PERMUTATION_OFFSET)
+			| (Util.encodeOrientation(orientation) << PocketCube.ORIENTATION_OFFSET);
+	}
+
+	/**
+	 * Packs the three colors of a cubie, read in the order of its indexes, into
+	 * a number smaller than COLOR_TRIPLES.
+	 */
+	protected static int getColorTriple(int first, int second, int third)
+	{
+		return (first * COLORS_NUMBER + second) * COLORS_NUMBER + third;
+	}
+
+	/**
+	 * Packs the colors found on the given stickers of this cube, in their
+	 * order, as getColorTriple does.
+	 * 
+	 * @return The triple of colors, or -1 if a sticker does not hold a color
+	 *         between 1 and 6.
+	 */
+	private int getColorTriple(int[] stickers)
+	{
+		int first = rubik[stickers[0]];
+		int second = rubik[stickers[1]];
+		int third = rubik[stickers[2]];
+		if (!isColor(first) || !isColor(second) || !isColor(third))
+		{
+			return -1;
+		}
+		return getColorTriple(first, second, third);
+	}
+
+	/**
+	 * Determines if the given number is one of the colors of the stickers.
+	 */
+	private static boolean isColor(int color)
+	{
+		return color > 0 && color < COLORS_NUMBER;
 	}
 	
 	/**
@@ -246,42 +290,49 @@ public class PocketCube
 	 * @throws Exception
 	 */
 	public String mapFromInt(int position, String target) throws Exception 
+	{
+		int[] newRubik = new int[rubik.length];
+		mapFromInt(position, toArray(target), newRubik);
+
+		char[] result = new char[newRubik.length];
+		for(int k = 0 ; k < newRubik.length; k++)
+		{
+			result[k] = Character.forDigit(newRubik[k], 10);
+		}
+		return new String(result);
+	}
+
+	/**
+	 * Array version of mapFromInt. The configuration equivalent to the given
+	 * integer is written into the given array.
+	 * 
+	 * @param position
+	 *            An int representing a position for the cube.
+	 * @param target
+	 *            A fixed configuration to be attained.
+	 * @param newRubik
+	 *            Array where the configuration is written.
+	 */
+	public void mapFromInt(int position, int[] target, int[] newRubik)
 	{
 		int orientation = (PocketCube.ORIENTATION_MASK & position) >> PocketCube.ORIENTATION_OFFSET;
 		int permutation = (PocketCube.PERMUTATION_MASK & position) >> PocketCube.PERMUTATION_OFFSET;
-	
-		
 
-		String perm = "0" + Util.getNthPermutationString(permutation, 7);
-		String orie = Integer.toString(orientation, 3);
-		
-		orie = "0" + Util.getremainingOrientation(orie, 3) + Util.padLeftZeros(orie, 6);
-		
-		
-		int[] newRubik = new int[rubik.length];
-		
-		int[] targetArray = toArray(target);
-		
+		int[] perm = new int[CUBIES_NUMBER];
+		int[] orie = new int[CUBIES_NUMBER];
+		Util.unrank(permutation, CUBIES_NUMBER, perm);
+		Util.decodeOrientation(orientation, orie);
+
 		for(int i = 0; i < CUBIES_NUMBER; i++)
 		{
 			int[] targetCubie = PocketCubeConstants.FINAL_ORDER[i];
-			char permChar = perm.charAt(i);
-			int permNumber = Character.digit(permChar, 10);
-			
-			int[] currentCubie = PocketCubeConstants.FINAL_ORDER[permNumber];
-			char orientChar = orie.charAt(i);
-			int orientNumber = Character.digit(orientChar, 10);
+			int[] currentCubie = PocketCubeConstants.FINAL_ORDER[perm[i]];
+			int orientNumber = orie[i];
 			for(int j = 0; j < targetCubie.length; j++)
 			{
-				newRubik[currentCubie[j]] = targetArray[targetCubie[(j + orientNumber) % currentCubie.length]];
+				newRubik[currentCubie[j]] = target[targetCubie[(j + orientNumber) % currentCubie.length]];
 			}
 		}
-		String result = "";
-		for(int k = 0 ; k < newRubik.length; k++)
-		{
-			result = result + newRubik[k];
-		}
-		return result;
 	}
 	
 	/**
@@ -313,7 +364,33 @@ public class PocketCube
 	 */
 	public String getTarget()
 	{
-		return getTarget(PocketCubeConstants.UBL_INDEXES, this.toString());
+		int target = getTargetIndex();
+		return target >= 0 ? SOLVED[target] : "";
+	}
+
+	/**
+	 * Array version of getTarget, fixing the upper back left cubie.
+	 * 
+	 * @return The target configuration using this particular cubie as pivot.
+	 */
+	public int[] getTargetArray()
+	{
+		return SOLVED_STICKERS[getTargetIndex()];
+	}
+
+	/**
+	 * Returns the position in SOLVED of the target configuration, fixing the
+	 * upper back left cubie. Each solved configuration shows a different
+	 * triple of colors on that cubie, so the position is looked up from the
+	 * colors found there.
+	 * 
+	 * @return The position in SOLVED, or -1 if no solved configuration has
+	 *         those colors on the upper back left cubie.
+	 */
+	protected int getTargetIndex()
+	{
+		int triple = getColorTriple(PocketCubeConstants.UBL_INDEXES);
+		return triple >= 0 ? TARGET_LOOKUP[triple] : -1;
 	}
 
 	/**
@@ -349,21 +426,13 @@ public class PocketCube
 		return "";
 	}
 	/**
-	 * Applies a random number (between 10 inclusive and 20 exclusive) of random
-	 * moves to the cube to get to a scrambled state.
+	 * Sets the cube to a state drawn uniformly at random among all the
+	 * states, instead of applying random moves, which neither reaches every
+	 * state with the same probability nor is as fast.
 	 */
 	public void scramble()
 	{
-		Random random = new Random();
-		String aux;
-
-		int numMoves = random.nextInt(10) + 10;
-
-		for (int i = 0; i < numMoves; i++)
-		{
-			aux = PocketCubeConstants.HALF_TURN_METRIC_MOVES[random.nextInt(PocketCubeConstants.HALF_TURN_METRIC_MOVES.length)];
-			this.parseToken(aux);
-		}
+		new Scrambler().scramble(this);
 	}
 
 
@@ -956,12 +1025,13 @@ public class PocketCube
 
 	/**
 	 * Method overload to make calls simpler when we want to solve the Pocket
-	 * Cube to the theoretical solved state.
+	 * Cube to the theoretical solved state. The sequence is parsed into a
+	 * MoveSequence, which applies each move as a permutation of the stickers
+	 * instead of going through parseToken.
 	 */
 	public void applySequence(String sequence)
 	{
-		applySequence(PocketCubeConstants.RUBIK_PATTERN,
-			sequence);
+		MoveSequence.parse(sequence).apply(this);
 	}
 
 	/**
@@ -971,14 +1041,26 @@ public class PocketCube
 	protected void applySequence(String stringPattern,
 		String sequence)
 	{
-		Pattern pattern = Pattern.compile(stringPattern);
-		Matcher matcher = pattern.matcher(sequence);
+		Matcher matcher = getPattern(stringPattern).matcher(sequence);
 		while (matcher.find())
 		{
 			parseToken(matcher.group());
 		}
 	}
 
+	/**
+	 * Returns the compiled version of the given regular expression, which is
+	 * only compiled again when it is not RUBIK_PATTERN.
+	 */
+	private static Pattern getPattern(String stringPattern)
+	{
+		if (stringPattern.equals(PocketCubeConstants.RUBIK_PATTERN))
+		{
+			return RUBIK_PATTERN;
+		}
+		return Pattern.compile(stringPattern);
+	}
+
 	/**
 	 * Creates a string representing the moves that would be needed to cancel
 	 * out the given string pattern. This is the algebraic equivalent of the
@@ -994,9 +1076,7 @@ public class PocketCube
 		String sequence)
 	{
 		String result = "";
-		Pattern pattern = Pattern.compile(stringPattern);
-
-		Matcher matcher = pattern.matcher(sequence);
+		Matcher matcher = getPattern(stringPattern).matcher(sequence);
 
 		while (matcher.find())
 		{
@@ -1078,8 +1158,7 @@ public class PocketCube
 
 				String solution = Solver.solve(this);
 
-				Pattern pattern = Pattern.compile(PocketCubeConstants.RUBIK_PATTERN);
-				Matcher matcher = pattern.matcher(solution);
+				Matcher matcher = RUBIK_PATTERN.matcher(solution);
 				while (matcher.find())
 				{
 					String move = matcher.group();
@@ -1152,10 +1231,14 @@ public class PocketCube
 	 * Mask the bits of an integer that represent the orientation.
 	 */
 	protected static int ORIENTATION_MASK = 1023;
+	/**
+	 * Compiled version of PocketCubeConstants.RUBIK_PATTERN.
+	 */
+	private static final Pattern RUBIK_PATTERN = Pattern.compile(PocketCubeConstants.RUBIK_PATTERN);
 	/**
 	 * The solved configurations in every possible orientation.
 	 */
-	protected String[] SOLVED = { "446611332255446611332255",
+	protected static final String[] SOLVED = { "446611332255446611332255",
 			"446655113322446655113322",
 			"446622551133446622551133",
 			"446633225511446633225511",
@@ -1180,4 +1263,59 @@ public class PocketCube
 			"335544116622335544116622",
 			"335522441166335522441166"
 		};
-}
\ No newline at end of file
+	/**
+	 * The solved configurations as arrays of ints, in the same order.
+	 */
+	protected static final int[][] SOLVED_STICKERS = new int[SOLVED.length][];
+	/**
+	 * Colors are numbered from 1 to 6, so 7 values are enough for each one.
+	 */
+	protected static final int COLORS_NUMBER = 7;
+	/**
+	 * Number of different triples of colors that getColorTriple can return.
+	 */
+	protected static final int COLOR_TRIPLES = COLORS_NUMBER * COLORS_NUMBER * COLORS_NUMBER;
+	/**
+	 * For each target configuration and each triple of colors, the cubie of
+	 * that target showing those colors times 3 plus its orientation; -1 if no
+	 * cubie has those colors in that order.
+	 */
+	protected static final byte[] CUBIE_LOOKUP = new byte[SOLVED.length * COLOR_TRIPLES];
+	/**
+	 * For each triple of colors, the position in SOLVED of the configuration
+	 * showing them on the upper back left cubie; -1 if there is none.
+	 */
+	protected static final byte[] TARGET_LOOKUP = new byte[COLOR_TRIPLES];
+
+	static
+	{
+		for (int i = 0; i < SOLVED.length; i++)
+		{
+			SOLVED_STICKERS[i] = new int[SOLVED[i].length()];
+			for (int j = 0; j < SOLVED[i].length(); j++)
+			{
+				SOLVED_STICKERS[i][j] = Character.digit(SOLVED[i].charAt(j), 10);
+			}
+		}
+
+		Arrays.fill(CUBIE_LOOKUP, (byte) -1);
+		Arrays.fill(TARGET_LOOKUP, (byte) -1);
+		for (int t = 0; t < SOLVED_STICKERS.length; t++)
+		{
+			int[] target = SOLVED_STICKERS[t];
+			int[] pivot = PocketCubeConstants.UBL_INDEXES;
+			TARGET_LOOKUP[getColorTriple(target[pivot[0]], target[pivot[1]], target[pivot[2]])] = (byte) t;
+			for (int cubie = 0; cubie < CUBIES_NUMBER; cubie++)
+			{
+				int[] stickers = PocketCubeConstants.FINAL_ORDER[cubie];
+				for (int twist = 0; twist < 3; twist++)
+				{
+					int triple = getColorTriple(target[stickers[twist]],
+						target[stickers[(twist + 1) % 3]],
+						target[stickers[(twist + 2) % 3]]);
+					CUBIE_LOOKUP[t * COLOR_TRIPLES + triple] = (byte) (cubie * 3 + twist);
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,332 @@
+package com.agutierrez.pocket;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class PositionFile implements Closeable
+{
+	/**
+	 * Creates a reader over an open channel whose header has already been
+	 * read.
+	 */
+	private PositionFile(RandomAccessFile input, long size, boolean depths)
+	{
+		this.input = input;
+		this.channel = input.getChannel();
+		this.size = size;
+		this.depths = depths;
+		this.recordSize = getRecordSize(depths);
+		this.buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		this.buffer.limit(0);
+		this.record = ByteBuffer.allocateDirect(this.recordSize);
+	}
+
+	/**
+	 * Opens a file written by PositionWriter. The header is checked against
+	 * the length of the file, so a truncated file is detected here rather
+	 * than halfway through reading it.
+	 *
+	 * @param file
+	 *            The file to be read.
+	 * @return A reader positioned at the first record.
+	 * @throws IOException
+	 *             If the file can not be read or is not a valid position file.
+	 */
+	public static PositionFile open(File file) throws IOException
+	{
+		RandomAccessFile input = new RandomAccessFile(file, "r");
+		try
+		{
+			FileChannel channel = input.getChannel();
+			ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+			while (header.hasRemaining())
+			{
+				if (channel.read(header) < 0)
+				{
+					break;
+				}
+			}
+			header.flip();
+
+			if (header.remaining() < HEADER_SIZE || header.getInt() != MAGIC)
+			{
+				throw new IOException(file + " is not a position file.");
+			}
+			int version = header.getInt();
+			if (version != VERSION)
+			{
+				throw new IOException("Unsupported position file version " + version + ".");
+			}
+			boolean depths = (header.getInt() & DEPTHS_FLAG) != 0;
+			long size = header.getLong();
+			if (channel.size() != HEADER_SIZE + size * getRecordSize(depths))
+			{
+				throw new IOException(file + " does not have the " + size + " positions its header announces.");
+			}
+			return new PositionFile(input, size, depths);
+		}
+		catch (IOException e)
+		{
+			input.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Returns the number of positions stored in the file.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Determines if every position is stored along with its distance to the
+	 * solved state.
+	 */
+	public boolean hasDepths()
+	{
+		return depths;
+	}
+
+	/**
+	 * Reads the next positions of the file. Records are read from the file
+	 * in large blocks, so this is meant to stream through the whole file.
+	 *
+	 * @param coordinates
+	 *            Array where the positions are written, as returned by
+	 *            PocketCube.mapToInt.
+	 * @param depths
+	 *            Array where the depth of each position is written, or null
+	 *            if they are not needed. Ignored if the file has no depths.
+	 * @return The number of positions read, 0 once the end of the file has
+	 *         been reached.
+	 * @throws IOException
+	 *             If the file can not be read.
+	 */
+	public int read(int[] coordinates, byte[] depths) throws IOException
+	{
+		int count = 0;
+		while (count < coordinates.length)
+		{
+			if (!buffer.hasRemaining() && !fill())
+			{
+				break;
+			}
+			int records = Math.min(coordinates.length - count, buffer.remaining() / recordSize);
+			for (int i = 0; i < records; i++)
+			{
+				coordinates[count] = readCoordinate(buffer);
+				if (this.depths)
+				{
+					byte depth = buffer.get();
+					if (depths != null)
+					{
+						depths[count] = depth;
+					}
+				}
+				count++;
+			}
+		}
+		return count;
+	}
+
+	/**
+	 * Moves the stream of read to the given record, so the next position it
+	 * returns is that one.
+	 *
+	 * @param index
+	 *            Position of the record, between 0 and size.
+	 */
+	public void seek(long index)
+	{
+		if (index < 0 || index > size)
+		{
+			throw new IndexOutOfBoundsException("Record " + index + " is out of the file.");
+		}
+		start = index;
+		buffer.limit(0);
+	}
+
+	/**
+	 * Reads a single position without moving the stream of read.
+	 *
+	 * @param index
+	 *            Position of the record, between 0 and size - 1.
+	 * @return The position, as returned by PocketCube.mapToInt.
+	 * @throws IOException
+	 *             If the file can not be read.
+	 */
+	public int getCoordinate(long index) throws IOException
+	{
+		return readCoordinate(readRecord(index));
+	}
+
+	/**
+	 * Reads the depth of a single position without moving the stream of read.
+	 *
+	 * @param index
+	 *            Position of the record, between 0 and size - 1.
+	 * @return The distance of the position to the solved state.
+	 * @throws IOException
+	 *             If the file can not be read.
+	 */
+	public int getDepth(long index) throws IOException
+	{
+		if (!depths)
+		{
+			throw new IllegalStateException("The file does not store depths.");
+		}
+		return readRecord(index).get(COORDINATE_BYTES);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		input.close();
+	}
+
+	/**
+	 * Reads the record with the given index into record, using a positional
+	 * read that leaves the stream of read where it was.
+	 */
+	private ByteBuffer readRecord(long index) throws IOException
+	{
+		if (index < 0 || index >= size)
+		{
+			throw new IndexOutOfBoundsException("Record " + index + " is out of the file.");
+		}
+		record.clear();
+		long position = HEADER_SIZE + index * recordSize;
+		while (record.hasRemaining())
+		{
+			if (channel.read(record, position + record.position()) < 0)
+			{
+				throw new EOFException("Record " + index + " is truncated.");
+			}
+		}
+		record.flip();
+		return record;
+	}
+
+	/**
+	 * Reads the next block of whole records into buffer.
+	 *
+	 * @return False if there are no records left.
+	 */
+	private boolean fill() throws IOException
+	{
+		long position = start + buffer.position() / recordSize;
+		start = position;
+		long left = (size - position) * recordSize;
+		if (left <= 0)
+		{
+			return false;
+		}
+		buffer.clear();
+		buffer.limit((int) Math.min(buffer.capacity(), left));
+		long offset = HEADER_SIZE + position * recordSize;
+		while (buffer.hasRemaining())
+		{
+			if (channel.read(buffer, offset + buffer.position()) < 0)
+			{
+				throw new EOFException("The file ends before its last record.");
+			}
+		}
+		buffer.flip();
+		return true;
+	}
+
+	/**
+	 * Reads a coordinate of 3 bytes, the most significant first.
+	 */
+	private static int readCoordinate(ByteBuffer buffer)
+	{
+		return ((buffer.get() & 0xFF) << 16) | ((buffer.get() & 0xFF) << 8) | (buffer.get() & 0xFF);
+	}
+
+	/**
+	 * Returns the number of bytes of each record.
+	 */
+	protected static int getRecordSize(boolean depths)
+	{
+		return depths ? COORDINATE_BYTES + 1 : COORDINATE_BYTES;
+	}
+
+	/**
+	 * Marks the start of every position file, "PKPF".
+	 */
+	protected static final int MAGIC = 0x504B5046;
+
+	/**
+	 * Version of the format written by PositionWriter.
+	 */
+	protected static final int VERSION = 1;
+
+	/**
+	 * Bytes of the header: magic number, version, flags and number of
+	 * positions.
+	 */
+	protected static final int HEADER_SIZE = 20;
+
+	/**
+	 * Flag telling that every record ends with the depth of its position.
+	 */
+	protected static final int DEPTHS_FLAG = 1;
+
+	/**
+	 * Bytes of each coordinate, which needs 23 bits.
+	 */
+	public static final int COORDINATE_BYTES = 3;
+
+	/**
+	 * Bytes read from the file at once. Records of 3 and 4 bytes both fit a
+	 * whole number of times, so no record is split between two blocks.
+	 */
+	protected static final int BUFFER_SIZE = 12 << 16;
+
+	/**
+	 * The open file.
+	 */
+	private final RandomAccessFile input;
+
+	/**
+	 * Channel of the open file.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Number of positions in the file.
+	 */
+	private final long size;
+
+	/**
+	 * Whether every record holds a depth.
+	 */
+	private final boolean depths;
+
+	/**
+	 * Bytes of each record.
+	 */
+	private final int recordSize;
+
+	/**
+	 * Block of records being streamed.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Single record used by the random access reads.
+	 */
+	private final ByteBuffer record;
+
+	/**
+	 * Index of the first record of buffer.
+	 */
+	private long start;
+}
@@ -0,0 +1,198 @@
+package com.agutierrez.pocket;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+public class PositionWriter implements Closeable
+{
+	/**
+	 * Creates the given file, replacing it if it exists, and leaves room for
+	 * the header, which is written once the number of positions is known.
+	 *
+	 * @param file
+	 *            The file to be written.
+	 * @param depths
+	 *            Whether every position is written along with its depth.
+	 * @throws IOException
+	 *             If the file can not be created.
+	 */
+	public PositionWriter(File file, boolean depths) throws IOException
+	{
+		this.output = new FileOutputStream(file);
+		this.channel = output.getChannel();
+		this.depths = depths;
+		this.buffer = ByteBuffer.allocateDirect(PositionFile.BUFFER_SIZE);
+		this.buffer.position(PositionFile.HEADER_SIZE);
+	}
+
+	/**
+	 * Writes a position of a file without depths.
+	 *
+	 * @param coordinate
+	 *            The position, as returned by PocketCube.mapToInt.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public void write(int coordinate) throws IOException
+	{
+		if (depths)
+		{
+			throw new IllegalStateException("Every position of this file needs a depth.");
+		}
+		reserve();
+		writeCoordinate(coordinate);
+		size++;
+	}
+
+	/**
+	 * Writes a position of a file with depths.
+	 *
+	 * @param coordinate
+	 *            The position, as returned by PocketCube.mapToInt.
+	 * @param depth
+	 *            Distance of the position to the solved state, or length of
+	 *            its solution.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public void write(int coordinate, int depth) throws IOException
+	{
+		if (!depths)
+		{
+			throw new IllegalStateException("This file does not store depths.");
+		}
+		reserve();
+		writeCoordinate(coordinate);
+		buffer.put((byte) depth);
+		size++;
+	}
+
+	/**
+	 * Writes several positions at once.
+	 *
+	 * @param coordinates
+	 *            The positions, as returned by PocketCube.mapToInt.
+	 * @param depths
+	 *            Depth of each position, or null if the file has no depths.
+	 * @param length
+	 *            Number of positions to be written from the start of the
+	 *            arrays.
+	 * @throws IOException
+	 *             If the file can not be written.
+	 */
+	public void write(int[] coordinates, byte[] depths, int length) throws IOException
+	{
+		for (int i = 0; i < length; i++)
+		{
+			if (this.depths)
+			{
+				write(coordinates[i], depths[i]);
+			}
+			else
+			{
+				write(coordinates[i]);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of positions written so far.
+	 */
+	public long size()
+	{
+		return size;
+	}
+
+	/**
+	 * Writes what is left in the buffer and then the header, with the number
+	 * of positions written, at the start of the file.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+			ByteBuffer header = ByteBuffer.allocate(PositionFile.HEADER_SIZE);
+			header.putInt(PositionFile.MAGIC);
+			header.putInt(PositionFile.VERSION);
+			header.putInt(depths ? PositionFile.DEPTHS_FLAG : 0);
+			header.putLong(size);
+			header.flip();
+			long position = 0;
+			while (header.hasRemaining())
+			{
+				position += channel.write(header, position);
+			}
+		}
+		finally
+		{
+			output.close();
+		}
+	}
+
+	/**
+	 * Empties the buffer into the file if it has no room for another record.
+	 */
+	private void reserve() throws IOException
+	{
+		if (buffer.remaining() < PositionFile.getRecordSize(depths))
+		{
+			flush();
+		}
+	}
+
+	/**
+	 * Writes the contents of the buffer into the file and clears it. The
+	 * first flush also writes the room left for the header.
+	 */
+	private void flush() throws IOException
+	{
+		buffer.flip();
+		while (buffer.hasRemaining())
+		{
+			channel.write(buffer);
+		}
+		buffer.clear();
+	}
+
+	/**
+	 * Writes a coordinate as 3 bytes, the most significant first, in the same
+	 * format as PocketCube.mapToByteArray.
+	 */
+	private void writeCoordinate(int coordinate)
+	{
+		buffer.put((byte) (coordinate >> 16));
+		buffer.put((byte) (coordinate >> 8));
+		buffer.put((byte) coordinate);
+	}
+
+	/**
+	 * The file being written.
+	 */
+	private final FileOutputStream output;
+
+	/**
+	 * Channel of the file being written.
+	 */
+	private final FileChannel channel;
+
+	/**
+	 * Whether every record holds a depth.
+	 */
+	private final boolean depths;
+
+	/**
+	 * Records waiting to be written.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Number of positions written so far.
+	 */
+	private long size;
+}
@@ -0,0 +1,145 @@
+package com.agutierrez.pocket;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ScrambleGenerator
+{
+	/**
+	 * Writes the given number of states, drawn uniformly at random, into a
+	 * position file. The states are split into chunks of CHUNK_SIZE, and each
+	 * chunk draws its states from its own scrambler, split from the one of the
+	 * seed in the order of the chunks. The chunks do not depend on the threads
+	 * that fill them, so the same seed and count always give the same output.
+	 *
+	 * @param seed
+	 *            Seed of the states.
+	 * @param count
+	 *            Number of states to be written.
+	 * @param executor
+	 *            Threads that fill the chunks.
+	 * @param table
+	 *            Distance table used to write the depth of every state, or
+	 *            null if the writer does not store depths.
+	 * @param writer
+	 *            Where the states are written.
+	 * @throws IOException
+	 *             If the states could not be written.
+	 */
+	public static void generate(long seed, long count, ExecutorService executor, final DistanceTable table,
+		PositionWriter writer) throws IOException
+	{
+		Scrambler root = new Scrambler(seed);
+		final int[] coordinates = new int[CHUNKS_PER_BATCH * CHUNK_SIZE];
+		final byte[] depths = table != null ? new byte[coordinates.length] : null;
+		long done = 0;
+		while (done < count)
+		{
+			List<Callable<Object>> tasks = new ArrayList<Callable<Object>>();
+			int length = 0;
+			for (int c = 0; c < CHUNKS_PER_BATCH && done < count; c++)
+			{
+				final int size = (int) Math.min(CHUNK_SIZE, count - done);
+				final int offset = length;
+				final Scrambler scrambler = root.split();
+				tasks.add(new Callable<Object>()
+				{
+					public Object call()
+					{
+						for (int i = offset; i < offset + size; i++)
+						{
+							coordinates[i] = scrambler.nextCoordinate();
+							if (table != null)
+							{
+								depths[i] = (byte) table.getDistance(MoveTables.toIndex(coordinates[i]));
+							}
+						}
+						return null;
+					}
+				});
+				length += size;
+				done += size;
+			}
+
+			try
+			{
+				for (Future<Object> future : executor.invokeAll(tasks))
+				{
+					future.get();
+				}
+			}
+			catch (InterruptedException e)
+			{
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while drawing states.", e);
+			}
+			catch (ExecutionException e)
+			{
+				throw new IllegalStateException("Could not draw states.", e.getCause());
+			}
+			writer.write(coordinates, depths, length);
+		}
+	}
+
+	/**
+	 * Writes random states to a position file. The arguments are, in order
+	 * and all of them optional, the file name, the number of states, the
+	 * seed, the number of threads and a distance table file; when the table
+	 * is given the depth of every state is written as well. Without a seed
+	 * one is made up and printed, so the same file can be generated again.
+	 */
+	public static void main(String args[]) throws IOException
+	{
+		File file = new File(args.length > 0 ? args[0] : SCRAMBLES_FILE);
+		long count = args.length > 1 ? Long.parseLong(args[1]) : DEFAULT_COUNT;
+		long seed = args.length > 2 ? Long.parseLong(args[2]) : System.nanoTime();
+		int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+		DistanceTable table = args.length > 4 ? DistanceTable.map(new File(args[4])) : null;
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		PositionWriter writer = new PositionWriter(file, table != null);
+		long time = System.currentTimeMillis();
+		try
+		{
+			generate(seed, count, executor, table, writer);
+		}
+		finally
+		{
+			writer.close();
+			executor.shutdown();
+		}
+		time = System.currentTimeMillis() - time;
+
+		System.out.println("Seed: " + seed);
+		System.out.println("Number of positions: " + count);
+		System.out.println("Milliseconds elapsed: " + time);
+	}
+
+	/**
+	 * Number of states drawn from the same scrambler.
+	 */
+	private static final int CHUNK_SIZE = 1 << 16;
+
+	/**
+	 * Number of chunks filled before writing them, which bounds the memory
+	 * used to about 20 MB.
+	 */
+	private static final int CHUNKS_PER_BATCH = 64;
+
+	/**
+	 * Number of states written when no count is given.
+	 */
+	private static final long DEFAULT_COUNT = 10000000;
+
+	/**
+	 * Name of the file written when none is given.
+	 */
+	private static final String SCRAMBLES_FILE = "scrambles.bin";
+}
@@ -0,0 +1,103 @@
+package com.agutierrez.pocket;
+
+import java.util.SplittableRandom;
+
+public class Scrambler
+{
+	/**
+	 * Creates a scrambler that draws its states from the given generator, so a
+	 * generator created with the same seed always gives the same states.
+	 *
+	 * @param random
+	 *            The source of randomness.
+	 */
+	public Scrambler(SplittableRandom random)
+	{
+		this.random = random;
+	}
+
+	/**
+	 * Creates a scrambler that always draws the same states for the same
+	 * seed.
+	 */
+	public Scrambler(long seed)
+	{
+		this(new SplittableRandom(seed));
+	}
+
+	/**
+	 * Creates a scrambler with an unseeded generator.
+	 */
+	public Scrambler()
+	{
+		this(new SplittableRandom());
+	}
+
+	/**
+	 * Returns a new scrambler whose states are independent from the ones of
+	 * this scrambler. Splitting a seeded scrambler the same number of times
+	 * always gives the same scramblers, which lets several threads draw
+	 * states without changing the result.
+	 */
+	public Scrambler split()
+	{
+		return new Scrambler(random.split());
+	}
+
+	/**
+	 * Draws a state uniformly at random among the 3,674,160 states with the
+	 * upper back left cubie fixed. Permutation and orientation are drawn
+	 * independently, and every pair of them is a different valid state, so no
+	 * state is more likely than any other.
+	 *
+	 * @return The state, as returned by PocketCube.mapToInt.
+	 */
+	public int nextCoordinate()
+	{
+		int permutation = random.nextInt(MoveTables.PERMUTATIONS_NUMBER);
+		int orientation = random.nextInt(MoveTables.ORIENTATIONS_NUMBER);
+		return (permutation << PocketCube.PERMUTATION_OFFSET) | (orientation << PocketCube.ORIENTATION_OFFSET);
+	}
+
+	/**
+	 * Draws a state uniformly at random, in the format of the move tables.
+	 *
+	 * @return The index of the state, as returned by MoveTables.getIndex.
+	 */
+	public int nextIndex()
+	{
+		return random.nextInt(MoveTables.STATES_NUMBER);
+	}
+
+	/**
+	 * Sets the given pocket cube to a state drawn uniformly at random, with
+	 * the colors of the initial configuration. The stickers are written
+	 * straight from the coordinate, without applying any move.
+	 *
+	 * @param rubik
+	 *            The pocket cube to be scrambled.
+	 */
+	public void scramble(PocketCube rubik)
+	{
+		rubik.mapFromInt(nextCoordinate(), PocketCube.INITIAL, rubik.rubik);
+	}
+
+	/**
+	 * Draws a state uniformly at random and returns the shortest sequence that
+	 * takes the solved cube to it, which is the inverse of the solution that
+	 * the distance table gives.
+	 *
+	 * @param table
+	 *            Distance table used to find the shortest sequence.
+	 * @return A sequence of at most DistanceTable.MAX_DEPTH generator moves.
+	 */
+	public String nextScramble(DistanceTable table)
+	{
+		return MoveSequence.parse(table.solve(nextIndex())).inverse().toString();
+	}
+
+	/**
+	 * The source of randomness.
+	 */
+	private final SplittableRandom random;
+}
@@ -0,0 +1,281 @@
+package com.agutierrez.pocket;
+
+import java.util.Arrays;
+
+public class SequenceSimplifier
+{
+	/**
+	 * Cancels and merges the moves of a sequence without changing what it
+	 * does. Consecutive turns of the same face become a single one, or none
+	 * if they cancel out, and so do turns of the same face separated only by
+	 * turns of the opposite one, since opposite faces commute. When two
+	 * opposite faces are next to each other the one that comes first in
+	 * HALF_TURN_METRIC_MOVES is written first, so sequences that only differ
+	 * in that order end up being equal.
+	 *
+	 * @param sequence
+	 *            The sequence to be simplified.
+	 * @return The simplified sequence.
+	 */
+	public static MoveSequence simplify(MoveSequence sequence)
+	{
+		int[] result = new int[sequence.size()];
+		int size = 0;
+		for (int i = 0; i < sequence.size(); i++)
+		{
+			int move = sequence.getMove(i);
+			int face = getFace(move);
+			int quarters = QUARTERS[move % 3];
+			if (size > 0 && getFace(result[size - 1]) == face)
+			{
+				quarters += QUARTERS[result[--size] % 3];
+			}
+			else if (size > 1 && getFace(result[size - 1]) == getOpposite(face)
+				&& getFace(result[size - 2]) == face)
+			{
+				quarters += QUARTERS[result[size - 2] % 3];
+				result[size - 2] = result[size - 1];
+				size--;
+			}
+
+			quarters %= 4;
+			if (quarters == 0)
+			{
+				continue;
+			}
+			move = face * 3 + TURN[quarters];
+			if (size > 0 && getFace(result[size - 1]) == getOpposite(face) && face < getFace(result[size - 1]))
+			{
+				result[size] = result[size - 1];
+				result[size - 1] = move;
+			}
+			else
+			{
+				result[size] = move;
+			}
+			size++;
+		}
+		return MoveSequence.of(Arrays.copyOf(result, size));
+	}
+
+	/**
+	 * Convenience method that simplifies an algorithm written as a string.
+	 */
+	public static String simplify(String sequence)
+	{
+		return simplify(MoveSequence.parse(sequence)).toString();
+	}
+
+	/**
+	 * Rewrites a sequence using only turns of the front, right and down
+	 * faces, which keep the upper back left cubie in place. A turn of the
+	 * back, left or up face is the same as turning the opposite face and then
+	 * rotating the whole cube, and the rotation is carried to the end of the
+	 * sequence by renaming the faces of the moves that follow. The result is
+	 * as long as the original and leaves the cube in the same state up to a
+	 * rotation of the whole cube, which is what matters to isSolved and to
+	 * every solver.
+	 *
+	 * @param sequence
+	 *            The sequence to be rewritten.
+	 * @return The simplified sequence with moves of
+	 *         HALF_TURN_GENERATOR_CORNER_UBL_FIXED only.
+	 */
+	public static MoveSequence toGenerators(MoveSequence sequence)
+	{
+		int[] result = new int[sequence.size()];
+		int rotation = 0;
+		for (int i = 0; i < sequence.size(); i++)
+		{
+			int move = CONJUGATE[rotation][sequence.getMove(i)];
+			result[i] = SPLIT_MOVE[move];
+			rotation = ROTATION_PRODUCT[SPLIT_ROTATION[move]][rotation];
+		}
+		return simplify(MoveSequence.of(result));
+	}
+
+	/**
+	 * Returns the shortest sequence that leaves the cube in the same state as
+	 * the given one, up to a rotation of the whole cube. The sequence is
+	 * first rewritten with generator moves to find the state it reaches, and
+	 * the solution that the distance table gives for that state is then
+	 * inverted. The same state always gives the same sequence, so this is a
+	 * canonical form as well.
+	 *
+	 * @param sequence
+	 *            The sequence to be optimized.
+	 * @param table
+	 *            Distance table used to find the shortest sequence.
+	 * @return The shortest equivalent sequence, made of moves of
+	 *         HALF_TURN_GENERATOR_CORNER_UBL_FIXED only.
+	 */
+	public static MoveSequence optimize(MoveSequence sequence, DistanceTable table)
+	{
+		MoveSequence generators = toGenerators(sequence);
+		int index = MoveTables.SOLVED_INDEX;
+		for (int i = 0; i < generators.size(); i++)
+		{
+			index = MoveTables.move(index, GENERATOR[generators.getMove(i)]);
+		}
+		return MoveSequence.parse(table.solve(index)).inverse();
+	}
+
+	/**
+	 * Convenience method that optimizes an algorithm written as a string.
+	 */
+	public static String optimize(String sequence, DistanceTable table)
+	{
+		return optimize(MoveSequence.parse(sequence), table).toString();
+	}
+
+	/**
+	 * Returns the face turned by a move, in the order of
+	 * HALF_TURN_METRIC_MOVES.
+	 */
+	private static int getFace(int move)
+	{
+		return move / 3;
+	}
+
+	/**
+	 * Returns the face opposite to the given one. HALF_TURN_METRIC_MOVES
+	 * lists opposite faces one after the other.
+	 */
+	private static int getOpposite(int face)
+	{
+		return face ^ 1;
+	}
+
+	/**
+	 * Finds the position in ROTATIONS of a map of stickers, or -1 if it is
+	 * not a rotation of the whole cube.
+	 */
+	private static int getRotation(int[] stickers)
+	{
+		for (int r = 0; r < MoveSequence.ROTATIONS.length; r++)
+		{
+			if (Arrays.equals(MoveSequence.ROTATIONS[r], stickers))
+			{
+				return r;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Finds the move whose map of stickers is the given one.
+	 */
+	private static int getMove(int[] stickers)
+	{
+		for (int m = 0; m < MoveSequence.MOVES_NUMBER; m++)
+		{
+			if (Arrays.equals(MoveSequence.STICKER_MOVES[m], stickers))
+			{
+				return m;
+			}
+		}
+		throw new IllegalStateException("No move matches the given stickers.");
+	}
+
+	/**
+	 * Fills the tables by composing the maps of stickers of the moves and the
+	 * rotations of the whole cube.
+	 */
+	private static void init()
+	{
+		int[][] rotations = MoveSequence.ROTATIONS;
+		int[][] moves = MoveSequence.STICKER_MOVES;
+		int[] inverse = new int[rotations.length];
+		for (int a = 0; a < rotations.length; a++)
+		{
+			for (int b = 0; b < rotations.length; b++)
+			{
+				int product = getRotation(MoveSequence.compose(rotations[a], rotations[b]));
+				ROTATION_PRODUCT[a][b] = product;
+				if (product == 0)
+				{
+					inverse[a] = b;
+				}
+			}
+		}
+
+		for (int r = 0; r < rotations.length; r++)
+		{
+			int[] undo = rotations[inverse[r]];
+			for (int m = 0; m < moves.length; m++)
+			{
+				CONJUGATE[r][m] = getMove(MoveSequence.compose(MoveSequence.compose(rotations[r], moves[m]), undo));
+			}
+		}
+
+		String[] names = PocketCubeConstants.HALF_TURN_METRIC_MOVES;
+		String[] generators = PocketCubeConstants.HALF_TURN_GENERATOR_CORNER_UBL_FIXED;
+		for (int m = 0; m < moves.length; m++)
+		{
+			GENERATOR[m] = Arrays.asList(generators).indexOf(names[m]);
+			if (GENERATOR[m] >= 0)
+			{
+				SPLIT_MOVE[m] = m;
+				SPLIT_ROTATION[m] = 0;
+				continue;
+			}
+			int first = getOpposite(getFace(m)) * 3;
+			for (int g = first; g < first + 3; g++)
+			{
+				int[] undo = MoveSequence.of(g).inverse().toStickers();
+				int rotation = getRotation(MoveSequence.compose(undo, moves[m]));
+				if (rotation >= 0)
+				{
+					SPLIT_MOVE[m] = g;
+					SPLIT_ROTATION[m] = rotation;
+				}
+			}
+		}
+	}
+
+	/**
+	 * Number of quarter turns of a clockwise, counterclockwise and half turn.
+	 */
+	private static final int[] QUARTERS = { 1, 3, 2 };
+
+	/**
+	 * Turn, in the order of HALF_TURN_METRIC_MOVES, made of a number of
+	 * clockwise quarter turns between 1 and 3.
+	 */
+	private static final int[] TURN = { -1, 0, 2, 1 };
+
+	/**
+	 * Position in ROTATIONS of the rotation made of applying one rotation and
+	 * then another.
+	 */
+	private static final int[][] ROTATION_PRODUCT = new int[MoveSequence.ROTATIONS.length][MoveSequence.ROTATIONS.length];
+
+	/**
+	 * For each rotation r and move m, the move that rotating the cube by r,
+	 * applying m and rotating it back is equivalent to.
+	 */
+	private static final int[][] CONJUGATE = new int[MoveSequence.ROTATIONS.length][MoveSequence.MOVES_NUMBER];
+
+	/**
+	 * For each move, the turn of a front, right or down face that does the
+	 * same up to a rotation of the whole cube.
+	 */
+	private static final int[] SPLIT_MOVE = new int[MoveSequence.MOVES_NUMBER];
+
+	/**
+	 * For each move, the rotation of the whole cube that follows SPLIT_MOVE to
+	 * make up the move.
+	 */
+	private static final int[] SPLIT_ROTATION = new int[MoveSequence.MOVES_NUMBER];
+
+	/**
+	 * For each move, its position in HALF_TURN_GENERATOR_CORNER_UBL_FIXED, or
+	 * -1 if it turns the back, left or up face.
+	 */
+	private static final int[] GENERATOR = new int[MoveSequence.MOVES_NUMBER];
+
+	static
+	{
+		init();
+	}
+}
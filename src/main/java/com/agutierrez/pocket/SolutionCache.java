@@ -0,0 +1,244 @@
+package com.agutierrez.pocket;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SolutionCache
+{
+	/**
+	 * Creates an empty cache that keeps at most the given number of
+	 * solutions, forgetting the least recently used one when it is full.
+	 *
+	 * @param capacity
+	 *            Maximum number of solutions kept.
+	 * @param table
+	 *            Distance table used to solve the states that are not in the
+	 *            cache, or null to solve them with IDA*.
+	 */
+	public SolutionCache(int capacity, DistanceTable table)
+	{
+		if (capacity <= 0)
+		{
+			throw new IllegalArgumentException("The capacity must be positive.");
+		}
+		this.capacity = capacity;
+		this.table = table;
+		this.solutions = new LinkedHashMap<Integer, String>(16, 0.75f, true)
+		{
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, String> eldest)
+			{
+				if (size() > SolutionCache.this.capacity)
+				{
+					evictions.incrementAndGet();
+					return true;
+				}
+				return false;
+			}
+		};
+	}
+
+	/**
+	 * Returns a solution for the given pocket cube, from the cache if the
+	 * same state has been solved before.
+	 */
+	public String solve(PocketCube rubik)
+	{
+		return solve(rubik.mapToInt());
+	}
+
+	/**
+	 * Returns a solution for the given state, from the cache if it has been
+	 * solved before. The search runs without holding the lock of the cache,
+	 * so a slow search does not block the threads that find their state in
+	 * it; two threads missing the same state at once may both solve it.
+	 *
+	 * @param coordinate
+	 *            The state, as returned by PocketCube.mapToInt, which is
+	 *            relative to the upper back left cubie and so does not depend
+	 *            on the colors of the cube.
+	 * @return The moves that solve the state.
+	 */
+	public String solve(int coordinate)
+	{
+		String solution = get(coordinate);
+		if (solution == null)
+		{
+			int index = MoveTables.toIndex(coordinate);
+			solution = table != null ? table.solve(index) : Solver.solveIdaStar(index);
+			put(coordinate, solution);
+		}
+		return solution;
+	}
+
+	/**
+	 * Returns the solution of the given state if it is in the cache, without
+	 * solving it otherwise. Used by callers that solve the states missing
+	 * themselves, such as SolverBatcher, which then add them with put.
+	 *
+	 * @param coordinate
+	 *            The state, as returned by PocketCube.mapToInt.
+	 * @return The moves that solve the state, or null if it is not in the
+	 *         cache, which counts as a miss.
+	 */
+	public String get(int coordinate)
+	{
+		String solution;
+		synchronized (solutions)
+		{
+			solution = solutions.get(coordinate);
+		}
+		if (solution != null)
+		{
+			hits.incrementAndGet();
+			METRICS.cacheHit();
+		}
+		else
+		{
+			misses.incrementAndGet();
+			METRICS.cacheMiss();
+		}
+		return solution;
+	}
+
+	/**
+	 * Keeps the solution of a state, forgetting the least recently used one
+	 * if the cache is full.
+	 *
+	 * @param coordinate
+	 *            The state, as returned by PocketCube.mapToInt.
+	 * @param solution
+	 *            The moves that solve the state.
+	 */
+	public void put(int coordinate, String solution)
+	{
+		synchronized (solutions)
+		{
+			solutions.put(coordinate, solution);
+		}
+	}
+
+	/**
+	 * Solves the first positions of a position file and keeps their
+	 * solutions, stopping once the cache is full. Loading them does not count
+	 * as hits or misses.
+	 *
+	 * @param file
+	 *            The positions to be solved, read from the start.
+	 * @return The number of positions loaded.
+	 * @throws IOException
+	 *             If the file can not be read.
+	 */
+	public int prewarm(PositionFile file) throws IOException
+	{
+		int[] coordinates = new int[PREWARM_BLOCK];
+		int loaded = 0;
+		int read;
+		while (loaded < capacity && (read = file.read(coordinates, null)) > 0)
+		{
+			for (int i = 0; i < read && loaded < capacity; i++, loaded++)
+			{
+				int index = MoveTables.toIndex(coordinates[i]);
+				put(coordinates[i], table != null ? table.solve(index) : Solver.solveIdaStar(index));
+			}
+		}
+		return loaded;
+	}
+
+	/**
+	 * Returns the number of solutions in the cache.
+	 */
+	public int size()
+	{
+		synchronized (solutions)
+		{
+			return solutions.size();
+		}
+	}
+
+	/**
+	 * Returns the maximum number of solutions kept.
+	 */
+	public int getCapacity()
+	{
+		return capacity;
+	}
+
+	/**
+	 * Returns the number of states found in the cache.
+	 */
+	public long getHits()
+	{
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of states that had to be solved.
+	 */
+	public long getMisses()
+	{
+		return misses.get();
+	}
+
+	/**
+	 * Returns the number of solutions forgotten to make room for new ones.
+	 */
+	public long getEvictions()
+	{
+		return evictions.get();
+	}
+
+	/**
+	 * Forgets every solution. The counters are kept.
+	 */
+	public void clear()
+	{
+		synchronized (solutions)
+		{
+			solutions.clear();
+		}
+	}
+
+	/**
+	 * Number of positions read at once by prewarm.
+	 */
+	private static final int PREWARM_BLOCK = 1 << 12;
+
+	/**
+	 * Metrics the hits and misses of every cache are added to.
+	 */
+	private static final SolverMetrics METRICS = SolverMetrics.getInstance();
+
+	/**
+	 * Maximum number of solutions kept.
+	 */
+	private final int capacity;
+
+	/**
+	 * Distance table used on a miss, or null.
+	 */
+	private final DistanceTable table;
+
+	/**
+	 * Solutions by coordinate, the least recently used first. Every access
+	 * holds its lock, since even a get reorders the entries.
+	 */
+	private final LinkedHashMap<Integer, String> solutions;
+
+	/**
+	 * Number of states found in the cache.
+	 */
+	private final AtomicLong hits = new AtomicLong();
+
+	/**
+	 * Number of states that had to be solved.
+	 */
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Number of solutions forgotten.
+	 */
+	private final AtomicLong evictions = new AtomicLong();
+}
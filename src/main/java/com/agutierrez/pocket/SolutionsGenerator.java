@@ -8,14 +8,9 @@
 
 package com.agutierrez.pocket;
 
-import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
 
 public class SolutionsGenerator
 {
@@ -50,73 +45,33 @@ public class SolutionsGenerator
 	}
 
 
+	/**
+	 * Generates the distance of every state with the upper back left cubie
+	 * fixed and writes it as a binary table that DistanceTable.map can load.
+	 * The file name can be given as the first argument and the number of
+	 * threads as the second one; by default every available core is used.
+	 */
 	public static void main(String args[])
 	{
-		int[] counter = new int[12];
-		
-		Map<String, String> positions = new HashMap<String, String>();
-		Queue<String> queue = new LinkedList<String>();
-		String pos;
-		String newPos;
-		PocketCube copy = new PocketCube();
-		String algorithm;
-
-		queue.offer(copy.toString());
-		positions.put(copy.toString(),
-			"");
-		int cont = 1;
-
-		int posi = 1;
-		int i = 0;
-		String lastMoves;
-		String[] validMoves;
+		File file = new File(args.length > 0 ? args[0] : TABLE_FILE);
+		int threads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
 
+		ForkJoinPool pool = new ForkJoinPool(threads);
 		long time = System.currentTimeMillis();
+		DistanceTable table = DistanceTable.generate(pool);
+		time = System.currentTimeMillis() - time;
+		pool.shutdown();
 
-		while ((pos = queue.poll()) != null)
+		int[] counter = table.getHistogram();
+		int posi = 0;
+		for (int k = 0; k < counter.length; k++)
 		{
-
-			lastMoves = positions.get(pos);
-			validMoves = SolutionsGenerator.getValidMoves(lastMoves);
-			for (String move : validMoves)
-			{
-				copy = new PocketCube();
-				copy.setPosition(pos);
-				copy.applySequence(move);
-				newPos = copy.toString();
-				algorithm = positions.get(pos) + "A";
-				cont++;
-				if (!positions.keySet().contains(newPos))
-				{
-
-					positions.put(newPos,
-						algorithm);
-					queue.offer(newPos);
-					posi++;
-
-				}
-			}
-
+			posi += counter[k];
 		}
-
-		time = System.currentTimeMillis() - time;
-		System.out.println("Number of loops: " + cont);
 		System.out.println("Number of positions: " + posi);
 		System.out.println("Milliseconds elapsed: " + time);
 		try {
-			PocketCube newPocket = new PocketCube();
-			File file = new File("compactest.txt");
-			BufferedWriter output = new BufferedWriter(new FileWriter(file));
-
-			for (String position : positions.keySet()) {
-
-				newPocket.setPosition(position);
-				counter[positions.get(position).length()]++;
-				output.write(newPocket.mapToInt() + "," + positions.get(position));
-				output.newLine();
-			}
-
-			output.close();
+			table.write(file);
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
@@ -211,4 +166,9 @@ public class SolutionsGenerator
 	};
 
 	public static int DEEPNESS = 4;
+
+	/**
+	 * File written when no name is given.
+	 */
+	public static final String TABLE_FILE = "distances.bin";
 }
@@ -0,0 +1,57 @@
+package com.agutierrez.pocket;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("com.agutierrez.pocket.Solve")
+@Label("Solve")
+@Category("Pocket Cube")
+@Description("A search of Solver or a walk down a table for the solution of a state")
+@StackTrace(false)
+public class SolveEvent extends Event
+{
+	/**
+	 * Fills the fields of a finished search and commits the event, if it is
+	 * enabled and lasted long enough to be recorded.
+	 *
+	 * @param algorithm
+	 *            Name of the search.
+	 * @param start
+	 *            Index of the state solved, as returned by MoveTables.getIndex.
+	 * @param solution
+	 *            The moves found, or null if there were none.
+	 * @param expanded
+	 *            Number of states expanded.
+	 */
+	protected void finish(String algorithm, int start, String solution, long expanded)
+	{
+		end();
+		if (shouldCommit())
+		{
+			this.algorithm = algorithm;
+			this.coordinate = MoveTables.toCoordinate(start);
+			this.solutionLength = solution != null ? MoveSequence.parse(solution).size() : -1;
+			this.nodesExpanded = expanded;
+			commit();
+		}
+	}
+
+	@Label("Algorithm")
+	@Description("Search used: BFS, Bidirectional, IDA*, DistanceTable or SymmetryTable")
+	String algorithm;
+
+	@Label("Coordinate")
+	@Description("State solved, as returned by PocketCube.mapToInt")
+	int coordinate;
+
+	@Label("Solution Length")
+	@Description("Number of moves of the solution, -1 if none was found")
+	int solutionLength;
+
+	@Label("Nodes Expanded")
+	long nodesExpanded;
+}
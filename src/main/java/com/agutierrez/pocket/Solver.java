@@ -1,10 +1,9 @@
 
 package com.agutierrez.pocket;
 
-import java.util.HashMap;
-import java.util.LinkedList;
-import java.util.Map;
-import java.util.Queue;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class Solver
 {
@@ -45,59 +44,492 @@ public class Solver
 
 	/**
 	 * This method will look for a solution to the given state of the Pocket
-	 * Cube. This will acomplish its job using a queue to push new states of the
-	 * puzzle and using a hash map to keep track of the positions already
-	 * visited. The hash map key is the representation of a state of the puzzle
-	 * and the value is the steps that lead to that position from the starting
-	 * one. If the given position is feasible, it is guaranteed that the target
-	 * will be reached. By constraining the moves depending on the last move we
-	 * do a more efficient search than the naive approach of expanding every
-	 * single node.
+	 * Cube. The state is mapped once to its index in the move tables and the
+	 * search is then done on ints only.
 	 */
 	public static String solve(PocketCube rubik)
 	{
-		Map<String, String> positions = new HashMap<String, String>();
-		Queue<String> queue = new LinkedList<String>();
-		String pos;
-		String newPos;
-		String algorithm;
-		String[] validMoves;
+		return solve(MoveTables.getIndex(rubik));
+	}
+
+	/**
+	 * Looks up an optimal solution for the given state in a precomputed
+	 * distance table instead of searching for it.
+	 */
+	public static String solve(PocketCube rubik, DistanceTable table)
+	{
+		return table.solve(rubik);
+	}
 
-		PocketCube copy = new PocketCube();
+	/**
+	 * This method will look for a solution to the state with the given index.
+	 * This will acomplish its job using a queue to push the indexes of new
+	 * states of the puzzle and a visited set to know which positions have
+	 * already been reached. Next to each entry of the queue we keep the entry
+	 * it came from and the move applied, so the queue grows with the number of
+	 * explored states. The visited set is a plain bitset over the whole space,
+	 * about 460 KB, that each thread allocates once and reuses: a search only
+	 * clears the bits of the states it queued, so it neither allocates nor
+	 * zeroes the whole set. If the given position is feasible, it is
+	 * guaranteed that the target will be reached. By constraining the moves
+	 * depending on the last move we do a more efficient search than the naive
+	 * approach of expanding every single node.
+	 *
+	 * @param start
+	 *            Index of the state to be solved, as returned by
+	 *            MoveTables.getIndex.
+	 * @return The moves that solve the given state.
+	 */
+	public static String solve(int start)
+	{
+		if (start == MoveTables.SOLVED_INDEX)
+		{
+			return "";
+		}
 
-		copy.setPosition(rubik.toString());
+		long time = System.nanoTime();
+		long[] visited = VISITED.get()[0];
+		int[] queue = new int[1024];
+		// Entry of the queue each state came from, shifted, plus the move.
+		int[] parents = new int[queue.length];
+		int head = 0;
+		int tail = 0;
+		// Depth of the state at head, and entry where the next depth starts.
+		int depth = 0;
+		int level = 1;
+		int frontier = 1;
+		long bytes = getBytes(visited) + getBytes(queue.length);
+		METRICS.searchStarted(bytes);
+		METRICS.searchDepth(depth);
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		String solution = null;
 
-		queue.offer(copy.toString());
-		positions.put(copy.toString(),
-			"");
+		visit(visited, start);
+		queue[tail++] = start;
 
-		while ((pos = queue.poll()) != null)
+		try
 		{
+			for (; head < tail; head++)
+			{
+				if (head == level)
+				{
+					METRICS.searchDepth(++depth);
+					level = tail;
+				}
+				int pos = queue[head];
+				int lastMove = parents[head] & MOVE_MASK;
+
+				for (int move = 0; move < MoveTables.MOVES_NUMBER; move++)
+				{
+					if (head > 0 && MoveTables.getFace(move) == MoveTables.getFace(lastMove))
+					{
+						continue;
+					}
+					int newPos = MoveTables.move(pos, move);
+					if (visit(visited, newPos))
+					{
+						if (tail == queue.length)
+						{
+							queue = Arrays.copyOf(queue, queue.length * 2);
+							parents = Arrays.copyOf(parents, queue.length);
+							METRICS.searchGrew(getBytes(tail));
+							bytes += getBytes(tail);
+						}
+						queue[tail] = newPos;
+						parents[tail] = (head << PARENT_OFFSET) | move;
+						tail++;
+						frontier = Math.max(frontier, tail - head);
 
-			algorithm = positions.get(pos);
-			validMoves = getValidMoves(algorithm);
-			for (String move : validMoves)
+						if (newPos == MoveTables.SOLVED_INDEX)
+						{
+							// The target position has been reached.
+							solution = getAlgorithm(parents, tail - 1);
+							return solution;
+						}
+					}
+				}
+			}
+			return null;
+		}
+		finally
+		{
+			clear(visited, queue, tail);
+			METRICS.searchFinished(head, tail, frontier, bytes, System.nanoTime() - time);
+			event.finish("BFS", start, solution, head);
+		}
+	}
+
+	/**
+	 * Convenience method that looks for a solution to the given pocket cube
+	 * searching from both ends.
+	 */
+	public static String solveBidirectional(PocketCube rubik)
+	{
+		return solveBidirectional(MoveTables.getIndex(rubik));
+	}
+
+	/**
+	 * Looks for a solution to the state with the given index running two
+	 * breadth first searches at the same time, one from the given state and
+	 * one from the solved state. A whole level of the side with the smaller
+	 * frontier is expanded at a time, and the search stops as soon as a state
+	 * reached by one side has already been visited by the other. Both sides
+	 * meet at about half the depth of the solution, so far fewer states are
+	 * explored than with solve.
+	 *
+	 * @param start
+	 *            Index of the state to be solved, as returned by
+	 *            MoveTables.getIndex.
+	 * @return The moves that solve the given state.
+	 */
+	public static String solveBidirectional(int start)
+	{
+		if (start == MoveTables.SOLVED_INDEX)
+		{
+			return "";
+		}
+
+		long time = System.nanoTime();
+		long[][] sets = VISITED.get();
+		SearchSide forward = new SearchSide(start, sets[0]);
+		SearchSide backward = new SearchSide(MoveTables.SOLVED_INDEX, sets[1]);
+		int frontier = 2;
+		METRICS.searchStarted(forward.bytes + backward.bytes);
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		String solution = null;
+
+		try
+		{
+			while (forward.head < forward.tail && backward.head < backward.tail)
 			{
-				copy = new PocketCube();
-				copy.setPosition(pos);
-				copy.applySequence(move);
-				newPos = copy.toString();
-				algorithm = positions.get(pos) + move;
-				if (!positions.keySet().contains(newPos))
+				SearchSide side = forward.tail - forward.head <= backward.tail - backward.head ? forward : backward;
+				SearchSide other = side == forward ? backward : forward;
+				METRICS.searchDepth(forward.depth + backward.depth);
+
+				for (int end = side.tail; side.head < end; side.head++)
 				{
-					positions.put(newPos,
-						positions.get(pos) + move);
-					queue.offer(newPos);
+					int pos = side.queue[side.head];
+					int lastMove = side.parents[side.head] & MOVE_MASK;
 
-					if (copy.isSolved())
+					for (int move = 0; move < MoveTables.MOVES_NUMBER; move++)
 					{
-						// The target position has been reached.
-						return positions.get(newPos);
+						if (side.head > 0 && MoveTables.getFace(move) == MoveTables.getFace(lastMove))
+						{
+							continue;
+						}
+						int newPos = MoveTables.move(pos, move);
+						if (visit(side.visited, newPos))
+						{
+							int entry = side.add(newPos, side.head, move);
+							frontier = Math.max(frontier, forward.tail - forward.head + backward.tail - backward.head);
+							if (isVisited(other.visited, newPos))
+							{
+								// Both searches have met.
+								if (side == forward)
+								{
+									solution = getAlgorithm(forward.parents, entry)
+										+ getReverseAlgorithm(backward.parents, backward.find(newPos));
+								}
+								else
+								{
+									solution = getAlgorithm(forward.parents, forward.find(newPos))
+										+ getReverseAlgorithm(backward.parents, entry);
+								}
+								return solution;
+							}
+						}
 					}
 				}
+				side.depth++;
 			}
+			return null;
+		}
+		finally
+		{
+			clear(forward.visited, forward.queue, forward.tail);
+			clear(backward.visited, backward.queue, backward.tail);
+			METRICS.searchFinished(forward.head + backward.head, forward.tail + backward.tail, frontier,
+				forward.bytes + backward.bytes, System.nanoTime() - time);
+			event.finish("Bidirectional", start, solution, forward.head + backward.head);
 		}
-		return null;
 	}
-}
 
+	/**
+	 * Follows the parents from the given entry of a search started at the
+	 * solved state, and returns the moves that take the state of that entry
+	 * back to the solved one.
+	 */
+	private static String getReverseAlgorithm(int[] parents, int entry)
+	{
+		String[] moves = PocketCubeConstants.HALF_TURN_GENERATOR_CORNER_UBL_FIXED;
+		StringBuilder algorithm = new StringBuilder();
+
+		for (; entry > 0; entry = parents[entry] >>> PARENT_OFFSET)
+		{
+			algorithm.append(moves[MoveTables.INVERSE_MOVE[parents[entry] & MOVE_MASK]]);
+		}
+		return algorithm.toString();
+	}
+
+	/**
+	 * One of the two searches of solveBidirectional. The queue keeps every
+	 * state reached, the ones before head have already been expanded, and next
+	 * to each of them the entry it came from and the move applied, just like
+	 * in solve. Every state in the queue is marked in visited, and depth
+	 * counts the levels already expanded.
+	 */
+	private static class SearchSide
+	{
+		SearchSide(int root, long[] visited)
+		{
+			this.visited = visited;
+			this.bytes = getBytes(visited) + getBytes(queue.length);
+			visit(visited, root);
+			queue[tail++] = root;
+		}
+
+		/**
+		 * Appends a state to the queue.
+		 *
+		 * @return The entry of the new state.
+		 */
+		int add(int state, int parent, int move)
+		{
+			if (tail == queue.length)
+			{
+				queue = Arrays.copyOf(queue, queue.length * 2);
+				parents = Arrays.copyOf(parents, queue.length);
+				METRICS.searchGrew(getBytes(tail));
+				bytes += getBytes(tail);
+			}
+			queue[tail] = state;
+			parents[tail] = (parent << PARENT_OFFSET) | move;
+			return tail++;
+		}
+
+		/**
+		 * Looks for the entry of a state in the queue. This is only done once,
+		 * when the searches meet.
+		 */
+		int find(int state)
+		{
+			for (int entry = 0; entry < tail; entry++)
+			{
+				if (queue[entry] == state)
+				{
+					return entry;
+				}
+			}
+			return -1;
+		}
+
+		final long[] visited;
+		int[] queue = new int[1024];
+		int[] parents = new int[queue.length];
+		int head = 0;
+		int tail = 0;
+		int depth = 0;
+		long bytes;
+	}
+
+	/**
+	 * Convenience method that looks for a solution to the given pocket cube
+	 * with IDA*.
+	 */
+	public static String solveIdaStar(PocketCube rubik)
+	{
+		return solveIdaStar(MoveTables.getIndex(rubik));
+	}
+
+	/**
+	 * Looks for a solution to the state with the given index using iterative
+	 * deepening A*. The search goes depth first with the same pruning on the
+	 * last move as solve, and cuts every branch whose depth plus the bound
+	 * given by the pattern databases exceeds the current limit. The limit
+	 * grows by one until a solution is found, so the solution is optimal, and
+	 * only the moves of the current branch are kept in memory.
+	 *
+	 * @param start
+	 *            Index of the state to be solved, as returned by
+	 *            MoveTables.getIndex.
+	 * @return The moves that solve the given state.
+	 */
+	public static String solveIdaStar(int start)
+	{
+		long time = System.nanoTime();
+		int permutation = start / MoveTables.ORIENTATIONS_NUMBER;
+		int orientation = start % MoveTables.ORIENTATIONS_NUMBER;
+		int[] path = new int[DistanceTable.MAX_DEPTH];
+		long[] expanded = new long[1];
+		METRICS.searchStarted(0);
+		SolveEvent event = new SolveEvent();
+		event.begin();
+		String solution = null;
+
+		try
+		{
+			for (int bound = PatternDatabase.getDistance(permutation, orientation); bound <= DistanceTable.MAX_DEPTH; bound++)
+			{
+				METRICS.searchDepth(bound);
+				if (search(permutation, orientation, 0, bound, path, expanded))
+				{
+					String[] moves = PocketCubeConstants.HALF_TURN_GENERATOR_CORNER_UBL_FIXED;
+					StringBuilder algorithm = new StringBuilder();
+					for (int i = 0; i < bound; i++)
+					{
+						algorithm.append(moves[path[i]]);
+					}
+					solution = algorithm.toString();
+					return solution;
+				}
+			}
+			return null;
+		}
+		finally
+		{
+			METRICS.searchFinished(expanded[0], 0, System.nanoTime() - time);
+			event.finish("IDA*", start, solution, expanded[0]);
+		}
+	}
+
+	/**
+	 * Depth first step of solveIdaStar. The moves of the current branch are
+	 * written in path, and the states expanded are counted in expanded[0].
+	 *
+	 * @return True if the solved state was reached within the bound.
+	 */
+	private static boolean search(int permutation, int orientation, int depth, int bound, int[] path, long[] expanded)
+	{
+		int distance = PatternDatabase.getDistance(permutation, orientation);
+		if (distance == 0)
+		{
+			return true;
+		}
+		if (depth + distance > bound)
+		{
+			return false;
+		}
+		expanded[0]++;
+		for (int move = 0; move < MoveTables.MOVES_NUMBER; move++)
+		{
+			if (depth > 0 && MoveTables.getFace(move) == MoveTables.getFace(path[depth - 1]))
+			{
+				continue;
+			}
+			path[depth] = move;
+			if (search(MoveTables.PERMUTATION_MOVE[move][permutation], MoveTables.ORIENTATION_MOVE[move][orientation],
+				depth + 1, bound, path, expanded))
+			{
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Follows the parents from the given entry of the queue back to the start,
+	 * and returns the moves in the order they were applied.
+	 */
+	private static String getAlgorithm(int[] parents, int entry)
+	{
+		String[] moves = PocketCubeConstants.HALF_TURN_GENERATOR_CORNER_UBL_FIXED;
+		List<String> path = new ArrayList<String>();
+
+		for (; entry > 0; entry = parents[entry] >>> PARENT_OFFSET)
+		{
+			path.add(moves[parents[entry] & MOVE_MASK]);
+		}
+
+		StringBuilder algorithm = new StringBuilder();
+		for (int i = path.size() - 1; i > -1; i--)
+		{
+			algorithm.append(path.get(i));
+		}
+		return algorithm.toString();
+	}
+
+	/**
+	 * Marks a state in a visited set of VISITED.
+	 *
+	 * @return True if the state had not been visited before.
+	 */
+	private static boolean visit(long[] visited, int index)
+	{
+		int word = index >>> 6;
+		long mask = 1L << index;
+		if ((visited[word] & mask) != 0)
+		{
+			return false;
+		}
+		visited[word] |= mask;
+		return true;
+	}
+
+	/**
+	 * Determines if a state is marked in a visited set of VISITED.
+	 */
+	private static boolean isVisited(long[] visited, int index)
+	{
+		return (visited[index >>> 6] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Clears the states of the first entries of a queue from a visited set, so
+	 * it is empty again for the next search of the thread.
+	 */
+	private static void clear(long[] visited, int[] queue, int length)
+	{
+		for (int i = 0; i < length; i++)
+		{
+			visited[queue[i] >>> 6] = 0;
+		}
+	}
+
+	/**
+	 * Returns the bytes of heap held by a visited set.
+	 */
+	private static long getBytes(long[] visited)
+	{
+		return 8L * visited.length;
+	}
+
+	/**
+	 * Returns the bytes of heap held by a queue of the given length and its
+	 * array of parents.
+	 */
+	private static long getBytes(int length)
+	{
+		return 8L * length;
+	}
+
+	/**
+	 * The two visited sets of each thread, one bit per state, used by the
+	 * breadth first searches. They are only touched by the thread that owns
+	 * them, so they need no atomic operations.
+	 */
+	private static final ThreadLocal<long[][]> VISITED = new ThreadLocal<long[][]>()
+	{
+		@Override
+		protected long[][] initialValue()
+		{
+			return new long[2][(MoveTables.STATES_NUMBER + 63) >>> 6];
+		}
+	};
+
+	/**
+	 * Metrics every search reports to.
+	 */
+	private static final SolverMetrics METRICS = SolverMetrics.getInstance();
+
+	/**
+	 * Number of bits that must be shifted to get the parent of a queue entry.
+	 */
+	private static final int PARENT_OFFSET = 4;
+
+	/**
+	 * Mask the bits of a queue entry that hold the move that reached it.
+	 */
+	private static final int MOVE_MASK = (1 << PARENT_OFFSET) - 1;
+}
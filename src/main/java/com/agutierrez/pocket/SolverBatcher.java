@@ -0,0 +1,342 @@
+package com.agutierrez.pocket;
+
+import java.io.Closeable;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+public class SolverBatcher implements Closeable
+{
+	/**
+	 * Creates a batcher and starts the thread that collects its batches. A
+	 * batch is taken once batchSize different states are waiting or once its
+	 * first state has waited for the given delay, whatever comes first, and
+	 * never holds more than batchSize states. The states of a batch missing
+	 * from the cache are split among the threads of the solver, and their
+	 * solutions are added to the cache.
+	 *
+	 * @param cache
+	 *            Cache looked up before solving a state and filled after.
+	 * @param solver
+	 *            Solver whose threads solve the states missing from the cache.
+	 * @param batchSize
+	 *            Largest number of different states in a batch.
+	 * @param delay
+	 *            Longest time, in microseconds, a state waits for others to
+	 *            join its batch.
+	 */
+	public SolverBatcher(SolutionCache cache, BatchSolver solver, int batchSize, long delay)
+	{
+		if (batchSize <= 0 || delay < 0)
+		{
+			throw new IllegalArgumentException("The batch size must be positive and the delay not negative.");
+		}
+		this.cache = cache;
+		this.solver = solver;
+		this.batchSize = batchSize;
+		this.delay = TimeUnit.MICROSECONDS.toNanos(delay);
+		this.worker = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				work();
+			}
+		}, "solver-batcher");
+		this.worker.setDaemon(true);
+		this.worker.start();
+	}
+
+	/**
+	 * Queues a state to be solved with the next batch. Callers asking for a
+	 * state that is already waiting share the same future, so the state is
+	 * solved only once.
+	 *
+	 * @param coordinate
+	 *            The state, as returned by PocketCube.mapToInt.
+	 * @return A future completed with the moves that solve the state.
+	 */
+	public CompletableFuture<String> submit(int coordinate)
+	{
+		Integer key = coordinate;
+		lock.lock();
+		try
+		{
+			if (closed)
+			{
+				throw new IllegalStateException("The batcher is closed.");
+			}
+			requests.incrementAndGet();
+			CompletableFuture<String> future = pending.get(key);
+			if (future != null)
+			{
+				coalesced.incrementAndGet();
+				return future;
+			}
+			future = new CompletableFuture<String>();
+			if (pending.isEmpty())
+			{
+				deadline = System.nanoTime() + delay;
+				ready.signal();
+			}
+			pending.put(key, future);
+			if (pending.size() >= batchSize)
+			{
+				ready.signal();
+			}
+			return future;
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Queues a pocket cube to be solved with the next batch.
+	 */
+	public CompletableFuture<String> submit(PocketCube rubik)
+	{
+		return submit(rubik.mapToInt());
+	}
+
+	/**
+	 * Returns the number of states submitted.
+	 */
+	public long getRequests()
+	{
+		return requests.get();
+	}
+
+	/**
+	 * Returns the number of submitted states that joined a copy of themselves
+	 * already waiting, and so were not solved again.
+	 */
+	public long getCoalesced()
+	{
+		return coalesced.get();
+	}
+
+	/**
+	 * Returns the number of batches solved.
+	 */
+	public long getBatches()
+	{
+		return batches.get();
+	}
+
+	/**
+	 * Stops taking states. Those already waiting are still solved, and this
+	 * returns once they are.
+	 */
+	@Override
+	public void close()
+	{
+		lock.lock();
+		try
+		{
+			closed = true;
+			ready.signal();
+		}
+		finally
+		{
+			lock.unlock();
+		}
+		try
+		{
+			worker.join();
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Takes batches and solves them until the batcher is closed and nothing
+	 * is left waiting. States submitted while a batch is being solved wait
+	 * for the next one.
+	 */
+	private void work()
+	{
+		Map<Integer, CompletableFuture<String>> batch;
+		while ((batch = take()) != null)
+		{
+			solve(batch);
+		}
+	}
+
+	/**
+	 * Waits for the next batch to be full or due and takes it.
+	 *
+	 * @return The states of the batch with their futures, or null once the
+	 *         batcher is closed and empty.
+	 */
+	private Map<Integer, CompletableFuture<String>> take()
+	{
+		lock.lock();
+		try
+		{
+			while (true)
+			{
+				if (pending.isEmpty())
+				{
+					if (closed)
+					{
+						return null;
+					}
+					ready.awaitUninterruptibly();
+					continue;
+				}
+				long left = deadline - System.nanoTime();
+				if (closed || left <= 0 || pending.size() >= batchSize)
+				{
+					Map<Integer, CompletableFuture<String>> batch = new HashMap<Integer, CompletableFuture<String>>();
+					Iterator<Map.Entry<Integer, CompletableFuture<String>>> oldest = pending.entrySet().iterator();
+					while (oldest.hasNext() && batch.size() < batchSize)
+					{
+						Map.Entry<Integer, CompletableFuture<String>> entry = oldest.next();
+						batch.put(entry.getKey(), entry.getValue());
+						oldest.remove();
+					}
+					// What is left has waited at least as long, so it is due now.
+					deadline = System.nanoTime();
+					return batch;
+				}
+				try
+				{
+					ready.awaitNanos(left);
+				}
+				catch (InterruptedException e)
+				{
+					// Only close wakes the worker up on purpose, checked above.
+				}
+			}
+		}
+		finally
+		{
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Completes the states of a batch found in the cache, solves the others
+	 * at once on the threads of the solver and adds their solutions to the
+	 * cache. If anything fails, even with an Error such as running out of
+	 * memory, every future of the batch not completed yet is completed with
+	 * the failure, so no caller is left waiting, and the worker goes on with
+	 * the next batch.
+	 */
+	private void solve(Map<Integer, CompletableFuture<String>> batch)
+	{
+		try
+		{
+			int[] missing = new int[batch.size()];
+			int count = 0;
+			for (Map.Entry<Integer, CompletableFuture<String>> entry : batch.entrySet())
+			{
+				String solution = cache.get(entry.getKey());
+				if (solution != null)
+				{
+					entry.getValue().complete(solution);
+				}
+				else
+				{
+					missing[count++] = entry.getKey();
+				}
+			}
+
+			if (count > 0)
+			{
+				missing = Arrays.copyOf(missing, count);
+				String[] solutions = solver.solve(missing);
+				for (int i = 0; i < count; i++)
+				{
+					cache.put(missing[i], solutions[i]);
+					batch.get(missing[i]).complete(solutions[i]);
+				}
+			}
+		}
+		catch (Throwable e)
+		{
+			for (CompletableFuture<String> future : batch.values())
+			{
+				future.completeExceptionally(e);
+			}
+		}
+		batches.incrementAndGet();
+	}
+
+	/**
+	 * Cache looked up before solving a state and filled after.
+	 */
+	private final SolutionCache cache;
+
+	/**
+	 * Solver of the states missing from the cache.
+	 */
+	private final BatchSolver solver;
+
+	/**
+	 * Largest number of different states in a batch.
+	 */
+	private final int batchSize;
+
+	/**
+	 * Longest wait of a state, in nanoseconds.
+	 */
+	private final long delay;
+
+	/**
+	 * Thread collecting the batches.
+	 */
+	private final Thread worker;
+
+	/**
+	 * Guards pending, deadline and closed.
+	 */
+	private final ReentrantLock lock = new ReentrantLock();
+
+	/**
+	 * Signaled when the first state of a batch arrives, when a batch gets
+	 * full and on close.
+	 */
+	private final Condition ready = lock.newCondition();
+
+	/**
+	 * States waiting for a batch, with the future of their callers, the
+	 * oldest first.
+	 */
+	private final Map<Integer, CompletableFuture<String>> pending = new LinkedHashMap<Integer, CompletableFuture<String>>();
+
+	/**
+	 * Time at which the next batch is due, from System.nanoTime.
+	 */
+	private long deadline;
+
+	/**
+	 * Whether new states are refused.
+	 */
+	private boolean closed;
+
+	/**
+	 * Number of states submitted.
+	 */
+	private final AtomicLong requests = new AtomicLong();
+
+	/**
+	 * Number of submitted states that joined one already waiting.
+	 */
+	private final AtomicLong coalesced = new AtomicLong();
+
+	/**
+	 * Number of batches solved.
+	 */
+	private final AtomicLong batches = new AtomicLong();
+}
@@ -0,0 +1,308 @@
+package com.agutierrez.pocket;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.JMException;
+import javax.management.ObjectName;
+
+public class SolverMetrics implements SolverMetricsMBean
+{
+	/**
+	 * Creates the metrics of the JVM, see getInstance.
+	 */
+	private SolverMetrics()
+	{
+	}
+
+	/**
+	 * Returns the metrics shared by every search of the JVM. They are
+	 * registered on the platform MBean server, under OBJECT_NAME, the first
+	 * time this class is used.
+	 */
+	public static SolverMetrics getInstance()
+	{
+		return INSTANCE;
+	}
+
+	@Override
+	public long getSolvesCompleted()
+	{
+		return solves.sum();
+	}
+
+	@Override
+	public long getActiveSearches()
+	{
+		return activeSearches.get();
+	}
+
+	@Override
+	public long getNodesExpanded()
+	{
+		return nodes.sum();
+	}
+
+	@Override
+	public double getNodesPerSecond()
+	{
+		long time = searchNanos.sum();
+		return time > 0 ? nodes.sum() * 1e9 / time : 0;
+	}
+
+	@Override
+	public long getMaxFrontierSize()
+	{
+		return maxFrontier.get();
+	}
+
+	@Override
+	public long getVisitedSetSize()
+	{
+		return visitedSize.get();
+	}
+
+	@Override
+	public int getSearchDepth()
+	{
+		return searchDepth;
+	}
+
+	@Override
+	public int getGeneratorDepth()
+	{
+		return generatorDepth.get();
+	}
+
+	@Override
+	public long getGeneratorStates()
+	{
+		return generatorStates.get();
+	}
+
+	@Override
+	public long getCacheHits()
+	{
+		return cacheHits.sum();
+	}
+
+	@Override
+	public long getCacheMisses()
+	{
+		return cacheMisses.sum();
+	}
+
+	@Override
+	public double getCacheHitRate()
+	{
+		long hits = cacheHits.sum();
+		long total = hits + cacheMisses.sum();
+		return total > 0 ? (double) hits / total : 0;
+	}
+
+	@Override
+	public long getSearchHeapBytes()
+	{
+		return heapBytes.get();
+	}
+
+	@Override
+	public void reset()
+	{
+		solves.reset();
+		nodes.reset();
+		searchNanos.reset();
+		maxFrontier.set(0);
+		cacheHits.reset();
+		cacheMisses.reset();
+	}
+
+	/**
+	 * Records the start of a search.
+	 *
+	 * @param bytes
+	 *            Bytes of heap allocated by the search so far.
+	 */
+	protected void searchStarted(long bytes)
+	{
+		activeSearches.incrementAndGet();
+		heapBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Records the bytes of heap allocated or released by a running search.
+	 */
+	protected void searchGrew(long bytes)
+	{
+		heapBytes.addAndGet(bytes);
+	}
+
+	/**
+	 * Records that a search moves on to a new depth.
+	 */
+	protected void searchDepth(int depth)
+	{
+		searchDepth = depth;
+	}
+
+	/**
+	 * Records the end of a breadth first search.
+	 *
+	 * @param expanded
+	 *            Number of states expanded.
+	 * @param visited
+	 *            Number of states visited.
+	 * @param frontier
+	 *            Largest number of states that waited in the queue at once.
+	 * @param bytes
+	 *            Bytes of heap held by the search, now released.
+	 * @param time
+	 *            Nanoseconds the search took.
+	 */
+	protected void searchFinished(long expanded, long visited, long frontier, long bytes, long time)
+	{
+		visitedSize.set(visited);
+		long max;
+		while (frontier > (max = maxFrontier.get()) && !maxFrontier.compareAndSet(max, frontier))
+		{
+			// Another search changed the maximum, look again.
+		}
+		searchFinished(expanded, bytes, time);
+	}
+
+	/**
+	 * Records the end of a solve without a visited set, IDA* or a walk down a
+	 * table.
+	 *
+	 * @param expanded
+	 *            Number of states expanded.
+	 * @param bytes
+	 *            Bytes of heap held by the search, now released.
+	 * @param time
+	 *            Nanoseconds the search took.
+	 */
+	protected void searchFinished(long expanded, long bytes, long time)
+	{
+		nodes.add(expanded);
+		searchNanos.add(time);
+		solves.increment();
+		heapBytes.addAndGet(-bytes);
+		activeSearches.decrementAndGet();
+	}
+
+	/**
+	 * Records that the distance table generator starts expanding a depth.
+	 *
+	 * @param depth
+	 *            The depth being expanded, -1 once the generation is over.
+	 * @param states
+	 *            Number of states reached so far.
+	 */
+	protected void generatorLevel(int depth, long states)
+	{
+		generatorDepth.set(depth);
+		generatorStates.set(states);
+	}
+
+	/**
+	 * Records that a solution cache found a state.
+	 */
+	protected void cacheHit()
+	{
+		cacheHits.increment();
+	}
+
+	/**
+	 * Records that a solution cache had to solve a state.
+	 */
+	protected void cacheMiss()
+	{
+		cacheMisses.increment();
+	}
+
+	/**
+	 * Name the metrics are registered under.
+	 */
+	public static final String OBJECT_NAME = "com.agutierrez.pocket:type=SolverMetrics";
+
+	/**
+	 * The metrics of the JVM.
+	 */
+	private static final SolverMetrics INSTANCE = new SolverMetrics();
+
+	static
+	{
+		try
+		{
+			ManagementFactory.getPlatformMBeanServer().registerMBean(INSTANCE, new ObjectName(OBJECT_NAME));
+		}
+		catch (JMException e)
+		{
+			// Already registered by another class loader; searches are still
+			// counted, only not visible through JMX.
+		}
+	}
+
+	/**
+	 * Number of solves finished.
+	 */
+	private final LongAdder solves = new LongAdder();
+
+	/**
+	 * Number of solves running.
+	 */
+	private final AtomicLong activeSearches = new AtomicLong();
+
+	/**
+	 * Number of states expanded by the finished solves.
+	 */
+	private final LongAdder nodes = new LongAdder();
+
+	/**
+	 * Nanoseconds taken by the finished solves.
+	 */
+	private final LongAdder searchNanos = new LongAdder();
+
+	/**
+	 * Largest frontier of a breadth first search.
+	 */
+	private final AtomicLong maxFrontier = new AtomicLong();
+
+	/**
+	 * Number of states visited by the last breadth first search.
+	 */
+	private final AtomicLong visitedSize = new AtomicLong();
+
+	/**
+	 * Depth being expanded by the last search that moved on to a new one.
+	 * Written once per depth, so a volatile field is enough.
+	 */
+	private volatile int searchDepth;
+
+	/**
+	 * Depth being expanded by the generator, -1 when none runs.
+	 */
+	private final AtomicInteger generatorDepth = new AtomicInteger(-1);
+
+	/**
+	 * Number of states reached by the last generation.
+	 */
+	private final AtomicLong generatorStates = new AtomicLong();
+
+	/**
+	 * Number of states found in a solution cache.
+	 */
+	private final LongAdder cacheHits = new LongAdder();
+
+	/**
+	 * Number of states a solution cache had to solve.
+	 */
+	private final LongAdder cacheMisses = new LongAdder();
+
+	/**
+	 * Bytes of heap held by the running searches and generations.
+	 */
+	private final AtomicLong heapBytes = new AtomicLong();
+}
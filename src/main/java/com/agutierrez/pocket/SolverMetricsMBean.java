@@ -0,0 +1,86 @@
+package com.agutierrez.pocket;
+
+public interface SolverMetricsMBean
+{
+	/**
+	 * Returns the number of solves that have finished, both searches of
+	 * Solver and walks down a distance or symmetry table.
+	 */
+	long getSolvesCompleted();
+
+	/**
+	 * Returns the number of solves running right now.
+	 */
+	long getActiveSearches();
+
+	/**
+	 * Returns the number of states expanded by every finished solve. A walk
+	 * down a table counts every neighbour whose distance it looks up.
+	 */
+	long getNodesExpanded();
+
+	/**
+	 * Returns the states expanded per second of search, over every finished
+	 * search. Searches running at the same time each count their own time, so
+	 * this is the speed of a single search rather than of the whole JVM.
+	 */
+	double getNodesPerSecond();
+
+	/**
+	 * Returns the largest number of states waiting at once in the queues of a
+	 * breadth first or bidirectional search.
+	 */
+	long getMaxFrontierSize();
+
+	/**
+	 * Returns the number of states visited by the last breadth first search
+	 * that finished.
+	 */
+	long getVisitedSetSize();
+
+	/**
+	 * Returns the depth being expanded by the search that last moved on to a
+	 * new one: the level of a breadth first search, the sum of the levels of
+	 * both sides of a bidirectional search or the bound of IDA*.
+	 */
+	int getSearchDepth();
+
+	/**
+	 * Returns the depth being expanded by the distance table generator, or -1
+	 * if none is running.
+	 */
+	int getGeneratorDepth();
+
+	/**
+	 * Returns the number of states reached by the running or last distance
+	 * table generation.
+	 */
+	long getGeneratorStates();
+
+	/**
+	 * Returns the number of states found in a solution cache.
+	 */
+	long getCacheHits();
+
+	/**
+	 * Returns the number of states that a solution cache had to solve.
+	 */
+	long getCacheMisses();
+
+	/**
+	 * Returns the fraction of the states asked to a solution cache that were
+	 * found in it, 0 if none has been asked yet.
+	 */
+	double getCacheHitRate();
+
+	/**
+	 * Returns the bytes of heap held right now by the visited sets, queues and
+	 * level arrays of the running searches and generations.
+	 */
+	long getSearchHeapBytes();
+
+	/**
+	 * Sets every counter back to 0. The gauges of running searches are kept.
+	 */
+	void reset();
+}
@@ -0,0 +1,370 @@
+package com.agutierrez.pocket;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class SolverServer implements Closeable
+{
+	/**
+	 * Creates a server that answers through the given cache. Nothing is
+	 * listened to until start is called.
+	 *
+	 * @param port
+	 *            Port to listen to on the loopback interface, or 0 to let the
+	 *            system pick a free one.
+	 * @param cache
+	 *            Cache used to solve every request.
+	 */
+	public SolverServer(int port, SolutionCache cache)
+	{
+		this(port, cache, null);
+	}
+
+	/**
+	 * Creates a server that queues every request in a batcher, so requests
+	 * arriving together through different connections are solved together.
+	 *
+	 * @param port
+	 *            Port to listen to on the loopback interface, or 0 to let the
+	 *            system pick a free one.
+	 * @param cache
+	 *            Cache used by the batcher.
+	 * @param batcher
+	 *            Batcher the requests are queued in, or null to solve each one
+	 *            on the thread of its connection.
+	 */
+	public SolverServer(int port, SolutionCache cache, SolverBatcher batcher)
+	{
+		this.port = port;
+		this.cache = cache;
+		this.batcher = batcher;
+	}
+
+	/**
+	 * Starts listening and accepting connections on a thread of its own. Each
+	 * connection is then handled on its own thread, a virtual one when the
+	 * JVM supports them.
+	 *
+	 * @throws IOException
+	 *             If the port can not be listened to.
+	 */
+	public void start() throws IOException
+	{
+		server = new ServerSocket(port, BACKLOG, InetAddress.getLoopbackAddress());
+		executor = createExecutor();
+		Thread acceptor = new Thread(new Runnable()
+		{
+			public void run()
+			{
+				accept();
+			}
+		}, "solver-server");
+		acceptor.start();
+	}
+
+	/**
+	 * Returns the port the server listens to, once started.
+	 */
+	public int getPort()
+	{
+		return server.getLocalPort();
+	}
+
+	/**
+	 * Stops accepting connections, if the server was started. Connections
+	 * already open are served until their clients close them, so the batcher,
+	 * if any, is left open.
+	 */
+	@Override
+	public void close() throws IOException
+	{
+		if (server != null)
+		{
+			server.close();
+		}
+		if (executor != null)
+		{
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Answers a single line of the protocol. A line of 24 digits is read as
+	 * the stickers of a cube, in the format of PocketCube.toString, and any
+	 * other number as a coordinate, as returned by PocketCube.mapToInt. The
+	 * answer is the solution, which is empty for a solved cube, or a line
+	 * starting with ERROR when the request is not a valid cube or can not be
+	 * solved, so a connection is never dropped because of a request.
+	 *
+	 * @param request
+	 *            The line sent by the client.
+	 * @param rubik
+	 *            Pocket cube owned by the calling thread, which can be used as
+	 *            scratch space.
+	 * @return The line to be sent back.
+	 */
+	public String answer(String request, PocketCube rubik)
+	{
+		String line = request.trim();
+		try
+		{
+			if (line.length() == PocketCube.INITIAL.length)
+			{
+				return solve(getCoordinate(line, rubik));
+			}
+			int coordinate = Integer.parseInt(line);
+			int permutation = (PocketCube.PERMUTATION_MASK & coordinate) >> PocketCube.PERMUTATION_OFFSET;
+			int orientation = (PocketCube.ORIENTATION_MASK & coordinate) >> PocketCube.ORIENTATION_OFFSET;
+			if (coordinate < 0 || coordinate != (coordinate & (PocketCube.PERMUTATION_MASK | PocketCube.ORIENTATION_MASK))
+				|| permutation >= MoveTables.PERMUTATIONS_NUMBER || orientation >= MoveTables.ORIENTATIONS_NUMBER)
+			{
+				return ERROR + "Not a valid coordinate.";
+			}
+			return solve(coordinate);
+		}
+		catch (NumberFormatException e)
+		{
+			return ERROR + "Expected 24 stickers or a coordinate.";
+		}
+		catch (IllegalArgumentException e)
+		{
+			return ERROR + e.getMessage();
+		}
+		catch (IllegalStateException e)
+		{
+			// The batcher has been closed.
+			return ERROR + e.getMessage();
+		}
+		catch (CompletionException e)
+		{
+			return ERROR + "Could not solve the state.";
+		}
+		catch (RuntimeException e)
+		{
+			// Any other failure is still answered, the connection stays open.
+			return ERROR + "Could not read the request.";
+		}
+	}
+
+	/**
+	 * Solves a state through the batcher, if there is one, or the cache.
+	 */
+	private String solve(int coordinate)
+	{
+		return batcher != null ? batcher.submit(coordinate).join() : cache.solve(coordinate);
+	}
+
+	/**
+	 * Reads the stickers of a cube and returns its coordinate. The cube is
+	 * rebuilt from the coordinate and compared with the stickers, which
+	 * rejects every sticker string that is not a reachable cube, such as one
+	 * with a twisted corner or two copies of the same corner.
+	 */
+	private static int getCoordinate(String stickers, PocketCube rubik)
+	{
+		rubik.setPosition(stickers);
+		int coordinate;
+		try
+		{
+			coordinate = rubik.mapToInt();
+		}
+		catch (IllegalArgumentException e)
+		{
+			coordinate = -1;
+		}
+		if (coordinate >= 0)
+		{
+			int[] rebuilt = new int[stickers.length()];
+			rubik.mapFromInt(coordinate, rubik.getTargetArray(), rebuilt);
+			if (Arrays.equals(rebuilt, rubik.rubik))
+			{
+				return coordinate;
+			}
+		}
+		throw new IllegalArgumentException("Not a valid cube.");
+	}
+
+	/**
+	 * Accepts connections until the server is closed.
+	 */
+	private void accept()
+	{
+		while (!server.isClosed())
+		{
+			try
+			{
+				final Socket socket = server.accept();
+				executor.execute(new Runnable()
+				{
+					public void run()
+					{
+						serve(socket);
+					}
+				});
+			}
+			catch (IOException e)
+			{
+				if (!server.isClosed())
+				{
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Answers every line sent through a connection until the client closes it
+	 * or sends QUIT.
+	 */
+	private void serve(Socket socket)
+	{
+		PocketCube rubik = new PocketCube();
+		try
+		{
+			BufferedReader in = new BufferedReader(new InputStreamReader(socket.getInputStream(), CHARSET));
+			Writer out = new OutputStreamWriter(socket.getOutputStream(), CHARSET);
+			String line;
+			while ((line = in.readLine()) != null && !line.trim().equals(QUIT))
+			{
+				out.write(answer(line, rubik));
+				out.write('\n');
+				out.flush();
+			}
+		}
+		catch (SocketException e)
+		{
+			// The client went away, there is nobody left to answer.
+		}
+		catch (IOException e)
+		{
+			e.printStackTrace();
+		}
+		finally
+		{
+			try
+			{
+				socket.close();
+			}
+			catch (IOException e)
+			{
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Returns an executor that runs every task on a new virtual thread. They
+	 * only exist from Java 21 on, above the release this is compiled for, so
+	 * they are looked up by reflection; on older JVMs a cached pool of
+	 * platform threads is used instead.
+	 */
+	private static ExecutorService createExecutor()
+	{
+		try
+		{
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e)
+		{
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * Starts a server. The arguments are, both optional, the port and a
+	 * distance table file; without a table the states are solved with IDA*.
+	 * Requests are batched and the states of each batch split among one
+	 * thread per core.
+	 */
+	public static void main(String args[]) throws IOException
+	{
+		int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+		DistanceTable table = args.length > 1 ? DistanceTable.map(new File(args[1])) : null;
+
+		SolutionCache cache = new SolutionCache(CACHE_CAPACITY, table);
+		BatchSolver solver = new BatchSolver(table, Runtime.getRuntime().availableProcessors());
+		SolverServer server = new SolverServer(port, cache, new SolverBatcher(cache, solver, BATCH_SIZE, BATCH_DELAY));
+		server.start();
+		System.out.println("Listening on port " + server.getPort());
+	}
+
+	/**
+	 * Line a client sends to close its connection.
+	 */
+	public static final String QUIT = "QUIT";
+
+	/**
+	 * Start of the line sent back for an invalid request.
+	 */
+	public static final String ERROR = "ERROR ";
+
+	/**
+	 * Port listened to when none is given.
+	 */
+	public static final int DEFAULT_PORT = 2014;
+
+	/**
+	 * Number of connections that can wait to be accepted.
+	 */
+	private static final int BACKLOG = 4096;
+
+	/**
+	 * Number of solutions kept by the cache of main.
+	 */
+	private static final int CACHE_CAPACITY = 1 << 16;
+
+	/**
+	 * Largest number of different states in a batch of main.
+	 */
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * Longest wait of a request for others to join its batch in main, in
+	 * microseconds.
+	 */
+	private static final long BATCH_DELAY = 200;
+
+	/**
+	 * Encoding of the protocol, which only uses ASCII.
+	 */
+	private static final Charset CHARSET = Charset.forName("US-ASCII");
+
+	/**
+	 * Port requested, 0 for any.
+	 */
+	private final int port;
+
+	/**
+	 * Cache used to solve every request.
+	 */
+	private final SolutionCache cache;
+
+	/**
+	 * Batcher the requests are queued in, or null.
+	 */
+	private final SolverBatcher batcher;
+
+	/**
+	 * Socket accepting connections.
+	 */
+	private ServerSocket server;
+
+	/**
+	 * Threads serving the connections.
+	 */
+	private ExecutorService executor;
+}
@@ -0,0 +1,482 @@
+package com.agutierrez.pocket;
+
+import java.util.Arrays;
+
+public class Symmetry
+{
+	/**
+	 * Returns the state seen when the given state is rotated or reflected by
+	 * one of the symmetries and its colors are changed back to the ones of
+	 * the solved cube. Both states are the same number of moves away from the
+	 * solved state, since every solution of one becomes a solution of the
+	 * other once its moves are rotated or reflected the same way. A symmetry
+	 * that moves the upper back left slot brings another cubie there, so the
+	 * state is then read with that cubie as the reference one, the same way
+	 * PocketCube.mapToInt reads a cube held in any orientation.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @param symmetry
+	 *            The symmetry, between 0 and SYMMETRIES_NUMBER - 1. Symmetry 0
+	 *            is the identity.
+	 * @return The index of the conjugated state.
+	 */
+	public static int conjugate(int index, int symmetry)
+	{
+		int[] slots = new int[PocketCube.CUBIES_NUMBER];
+		Util.unrank(index / MoveTables.ORIENTATIONS_NUMBER, slots.length, slots);
+		int[] twists = new int[PocketCube.CUBIES_NUMBER];
+		Util.lookupOrientation(index % MoveTables.ORIENTATIONS_NUMBER, twists);
+
+		int[] slotMap = SLOT_SYMMETRY[symmetry];
+		int[] cubieMap = CUBIE_SYMMETRY[symmetry];
+		int[] moved = new int[slots.length];
+		for (int cubie = 0; cubie < slots.length; cubie++)
+		{
+			int slot = slots[cubie];
+			moved[slotMap[slot]] = cubieMap[slot * CUBIE_TWISTS_NUMBER + cubie * 3 + twists[slot]];
+		}
+
+		int base = moved[UBL_SLOT] * CUBIE_TWISTS_NUMBER;
+		int[] newSlots = new int[slots.length];
+		int[] newTwists = new int[slots.length];
+		for (int slot = 0; slot < moved.length; slot++)
+		{
+			int cubie = RELABEL[base + moved[slot]];
+			newSlots[cubie / 3] = slot;
+			newTwists[slot] = cubie % 3;
+		}
+		return Util.rank(newSlots, newSlots.length) * MoveTables.ORIENTATIONS_NUMBER
+			+ Util.encodeOrientation(newTwists);
+	}
+
+	/**
+	 * Returns the orientation of the given state once conjugated by the
+	 * symmetry that sends its permutation to the representative of its class.
+	 * This is the same as conjugate(index, getPermutationSymmetry(p)) modulus
+	 * ORIENTATIONS_NUMBER, but the new place and twist of every slot come from
+	 * a table, so the permutation is neither unranked nor ranked again.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The orientation of the conjugated state, between 0 and 728.
+	 */
+	public static int getRepresentativeOrientation(int index)
+	{
+		int permutation = index / MoveTables.ORIENTATIONS_NUMBER;
+		int[] twists = new int[PocketCube.CUBIES_NUMBER];
+		Util.lookupOrientation(index % MoveTables.ORIENTATIONS_NUMBER, twists);
+
+		int[] newTwists = new int[twists.length];
+		int base = permutation * PocketCube.CUBIES_NUMBER;
+		boolean mirror = isMirror(PERMUTATION_SYMMETRY[permutation]);
+		for (int slot = 0; slot < twists.length; slot++)
+		{
+			int twist = mirror ? 3 - twists[slot] : twists[slot];
+			newTwists[REPRESENTATIVE_SLOT[base + slot]] = (twist + REPRESENTATIVE_TWIST[base + slot]) % 3;
+		}
+		return Util.encodeOrientation(newTwists);
+	}
+
+	/**
+	 * Returns the canonical representative of the symmetry class of the given
+	 * state, which is the smallest index among all of its conjugates.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The index of the representative.
+	 */
+	public static int getRepresentative(int index)
+	{
+		int representative = index;
+		for (int symmetry = 1; symmetry < SYMMETRIES_NUMBER; symmetry++)
+		{
+			representative = Math.min(representative, conjugate(index, symmetry));
+		}
+		return representative;
+	}
+
+	/**
+	 * Returns the position of the representative of the class of the given
+	 * state among the states whose permutation represents its permutation
+	 * class: the class of its permutation times ORIENTATIONS_NUMBER plus its
+	 * orientation. Every symmetry is one of the symmetries that keep the upper
+	 * back left slot in place, applied after bringing one of the 8 slots
+	 * there, so only 7 states are conjugated; the rest of the work is done by
+	 * the tables of getRepresentativeOrientation.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The class of the permutation of getRepresentative(index) times
+	 *         ORIENTATIONS_NUMBER plus its orientation.
+	 */
+	public static int getRepresentativeEntry(int index)
+	{
+		int entry = Integer.MAX_VALUE;
+		for (int slot = 0; slot < PocketCube.CUBIES_NUMBER; slot++)
+		{
+			int state = slot == UBL_SLOT ? index : conjugate(index, REFERENCE_SYMMETRY[slot]);
+			int permutationClass = PERMUTATION_CLASS[state / MoveTables.ORIENTATIONS_NUMBER];
+			int orientation = getRepresentativeOrientation(state);
+			// The symmetries that leave the representative permutation as it
+			// is may still give a smaller orientation.
+			int first = PERMUTATION_REPRESENTATIVE[permutationClass] * MoveTables.ORIENTATIONS_NUMBER + orientation;
+			for (long left = CLASS_STABILIZER[permutationClass]; left != 0; left &= left - 1)
+			{
+				int conjugated = conjugate(first, Long.numberOfTrailingZeros(left));
+				orientation = Math.min(orientation, conjugated % MoveTables.ORIENTATIONS_NUMBER);
+			}
+			entry = Math.min(entry, permutationClass * MoveTables.ORIENTATIONS_NUMBER + orientation);
+		}
+		return entry;
+	}
+
+	/**
+	 * Determines if the given symmetry is a reflection rather than a rotation.
+	 */
+	public static boolean isMirror(int symmetry)
+	{
+		return symmetry >= ROTATIONS_NUMBER;
+	}
+
+	/**
+	 * Returns the class of the given permutation. Permutations in the same
+	 * class are conjugates of each other by the symmetries that keep the upper
+	 * back left slot in place.
+	 *
+	 * @param permutation
+	 *            Permutation of a state, between 0 and 5039.
+	 * @return The class, between 0 and PERMUTATION_CLASSES_NUMBER - 1.
+	 */
+	public static int getPermutationClass(int permutation)
+	{
+		return PERMUTATION_CLASS[permutation];
+	}
+
+	/**
+	 * Returns a symmetry that keeps the upper back left slot in place and
+	 * sends the given permutation to the representative of its class.
+	 *
+	 * @param permutation
+	 *            Permutation of a state, between 0 and 5039.
+	 * @return The symmetry, between 0 and SYMMETRIES_NUMBER - 1.
+	 */
+	public static int getPermutationSymmetry(int permutation)
+	{
+		return PERMUTATION_SYMMETRY[permutation];
+	}
+
+	/**
+	 * Returns the representative of the given permutation class.
+	 *
+	 * @param permutationClass
+	 *            The class, between 0 and PERMUTATION_CLASSES_NUMBER - 1.
+	 * @return The smallest permutation of the class.
+	 */
+	public static int getPermutationRepresentative(int permutationClass)
+	{
+		return PERMUTATION_REPRESENTATIVE[permutationClass];
+	}
+
+	/**
+	 * Finds the symmetries as maps of stickers, in the same format that moves
+	 * leave on a cube whose stickers are numbered: the sticker that ends up in
+	 * position k is the one found in position map[k]. The rotations are the 24
+	 * whole cube rotations. The reflections follow them with MIRROR.
+	 */
+	private static int[][] createStickerMaps()
+	{
+		int[][] rotations = MoveSequence.ROTATIONS;
+		int[][] maps = new int[SYMMETRIES_NUMBER][];
+		for (int i = 0; i < ROTATIONS_NUMBER; i++)
+		{
+			int[] reflection = new int[MIRROR.length];
+			for (int k = 0; k < reflection.length; k++)
+			{
+				reflection[k] = rotations[i][MIRROR[k]];
+			}
+			maps[i] = rotations[i];
+			maps[ROTATIONS_NUMBER + i] = reflection;
+		}
+		return maps;
+	}
+
+	/**
+	 * Returns the position of a sticker among the stickers of a slot, or -1 if
+	 * it is not one of them.
+	 */
+	private static int indexOf(int[] slot, int sticker)
+	{
+		for (int i = 0; i < slot.length; i++)
+		{
+			if (slot[i] == sticker)
+			{
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Returns the triple of colors shown by a cubie with the given twist on
+	 * the solved cube, read in the order of the indexes of its slot.
+	 */
+	private static int getColorTriple(int cubieTwist)
+	{
+		int[] solved = PocketCube.SOLVED_STICKERS[0];
+		int[] stickers = PocketCubeConstants.FINAL_ORDER[cubieTwist / 3];
+		int twist = cubieTwist % 3;
+		return PocketCube.getColorTriple(solved[stickers[twist]],
+			solved[stickers[(twist + 1) % 3]],
+			solved[stickers[(twist + 2) % 3]]);
+	}
+
+	/**
+	 * Translates each map of stickers into the slot where it takes the cubie
+	 * of every slot and what that cubie becomes once the colors are changed
+	 * back to the ones of the solved cube, and finds out how the cubies are
+	 * renamed when another one is taken as the reference. The permutation
+	 * classes and the tables of getRepresentativeOrientation come from the
+	 * symmetries that keep the upper back left slot in place, for which the
+	 * new permutation only depends on the old one.
+	 */
+	private static void init()
+	{
+		int[][] order = PocketCubeConstants.FINAL_ORDER;
+		int[] solved = PocketCube.SOLVED_STICKERS[0];
+		int[][] maps = createStickerMaps();
+		for (int symmetry = 0; symmetry < SYMMETRIES_NUMBER; symmetry++)
+		{
+			int[] map = maps[symmetry];
+			int[] colors = new int[PocketCube.COLORS_NUMBER];
+			for (int k = 0; k < map.length; k++)
+			{
+				colors[solved[map[k]]] = solved[k];
+			}
+			for (int slot = 0; slot < order.length; slot++)
+			{
+				for (int newSlot = 0; newSlot < order.length; newSlot++)
+				{
+					if (indexOf(order[slot], map[order[newSlot][0]]) < 0)
+					{
+						continue;
+					}
+					SLOT_SYMMETRY[symmetry][slot] = newSlot;
+					for (int cubie = 0; cubie < CUBIE_TWISTS_NUMBER; cubie++)
+					{
+						int[] stickers = order[cubie / 3];
+						int[] shown = new int[3];
+						for (int j = 0; j < shown.length; j++)
+						{
+							shown[j] = solved[stickers[(cubie % 3 + j) % 3]];
+						}
+						int[] seen = new int[3];
+						for (int j = 0; j < seen.length; j++)
+						{
+							seen[j] = colors[shown[indexOf(order[slot], map[order[newSlot][j]])]];
+						}
+						CUBIE_SYMMETRY[symmetry][slot * CUBIE_TWISTS_NUMBER + cubie] =
+							PocketCube.CUBIE_LOOKUP[PocketCube.getColorTriple(seen[0], seen[1], seen[2])];
+					}
+				}
+			}
+		}
+
+		for (int reference = 0; reference < CUBIE_TWISTS_NUMBER; reference++)
+		{
+			int target = PocketCube.TARGET_LOOKUP[getColorTriple(reference)];
+			for (int cubie = 0; cubie < CUBIE_TWISTS_NUMBER; cubie++)
+			{
+				RELABEL[reference * CUBIE_TWISTS_NUMBER + cubie] =
+					PocketCube.CUBIE_LOOKUP[target * PocketCube.COLOR_TRIPLES + getColorTriple(cubie)];
+			}
+		}
+
+		long fixed = 0;
+		for (int symmetry = SYMMETRIES_NUMBER - 1; symmetry > 0; symmetry--)
+		{
+			if (SLOT_SYMMETRY[symmetry][UBL_SLOT] == UBL_SLOT)
+			{
+				fixed |= 1L << symmetry;
+			}
+		}
+		for (int symmetry = ROTATIONS_NUMBER - 1; symmetry >= 0; symmetry--)
+		{
+			for (int slot = 0; slot < order.length; slot++)
+			{
+				if (SLOT_SYMMETRY[symmetry][slot] == UBL_SLOT)
+				{
+					REFERENCE_SYMMETRY[slot] = symmetry;
+				}
+			}
+		}
+
+		int[] permutations = new int[MoveTables.PERMUTATIONS_NUMBER];
+		int classes = 0;
+		for (int p = 0; p < permutations.length; p++)
+		{
+			int representative = p;
+			int best = 0;
+			for (long left = fixed; left != 0; left &= left - 1)
+			{
+				int symmetry = Long.numberOfTrailingZeros(left);
+				int conjugated = conjugate(p * MoveTables.ORIENTATIONS_NUMBER, symmetry)
+					/ MoveTables.ORIENTATIONS_NUMBER;
+				if (conjugated < representative)
+				{
+					representative = conjugated;
+					best = symmetry;
+				}
+			}
+			if (representative == p)
+			{
+				long stabilizer = 0;
+				for (long left = fixed; left != 0; left &= left - 1)
+				{
+					int symmetry = Long.numberOfTrailingZeros(left);
+					if (conjugate(p * MoveTables.ORIENTATIONS_NUMBER, symmetry) / MoveTables.ORIENTATIONS_NUMBER == p)
+					{
+						stabilizer |= 1L << symmetry;
+					}
+				}
+				CLASS_STABILIZER[classes] = stabilizer;
+				permutations[classes++] = p;
+			}
+			PERMUTATION_CLASS[p] = Arrays.binarySearch(permutations, 0, classes, representative);
+			PERMUTATION_SYMMETRY[p] = (byte) best;
+
+			int[] slotMap = SLOT_SYMMETRY[best];
+			int[] cubieMap = CUBIE_SYMMETRY[best];
+			int[] slots = new int[PocketCube.CUBIES_NUMBER];
+			Util.unrank(p, slots.length, slots);
+			for (int cubie = 0; cubie < slots.length; cubie++)
+			{
+				int entry = p * PocketCube.CUBIES_NUMBER + slots[cubie];
+				REPRESENTATIVE_SLOT[entry] = (byte) slotMap[slots[cubie]];
+				REPRESENTATIVE_TWIST[entry] = (byte) (cubieMap[slots[cubie] * CUBIE_TWISTS_NUMBER + cubie * 3] % 3);
+			}
+		}
+		PERMUTATION_REPRESENTATIVE = Arrays.copyOf(permutations, classes);
+	}
+
+	/**
+	 * Number of rotations of the whole cube.
+	 */
+	public static final int ROTATIONS_NUMBER = 24;
+
+	/**
+	 * Number of symmetries: the rotations and each of them followed by a
+	 * reflection.
+	 */
+	public static final int SYMMETRIES_NUMBER = 2 * ROTATIONS_NUMBER;
+
+	/**
+	 * Number of ways a cubie can sit in a slot, the cubie times 3 plus its
+	 * twist.
+	 */
+	private static final int CUBIE_TWISTS_NUMBER = 3 * PocketCube.CUBIES_NUMBER;
+
+	/**
+	 * Reflection through the plane that holds the upper back left to down
+	 * front right diagonal, swapping the left and back faces as well as the
+	 * front and right ones.
+	 */
+	private static final int[] MIRROR = { 0,
+		12,
+		15,
+		3,
+		11,
+		10,
+		9,
+		8,
+		7,
+		6,
+		5,
+		4,
+		1,
+		13,
+		14,
+		2,
+		23,
+		22,
+		21,
+		20,
+		19,
+		18,
+		17,
+		16
+	};
+
+	/**
+	 * Position of the upper back left slot in FINAL_ORDER.
+	 */
+	private static final int UBL_SLOT = 0;
+
+	/**
+	 * Slot to which each symmetry sends the cubie found in each slot.
+	 */
+	private static final int[][] SLOT_SYMMETRY = new int[SYMMETRIES_NUMBER][PocketCube.CUBIES_NUMBER];
+
+	/**
+	 * For each symmetry, slot and cubie with its twist found there, the cubie
+	 * and twist shown in the new slot once the colors are changed back.
+	 */
+	private static final int[][] CUBIE_SYMMETRY = new int[SYMMETRIES_NUMBER][PocketCube.CUBIES_NUMBER * CUBIE_TWISTS_NUMBER];
+
+	/**
+	 * For each cubie and twist found in the upper back left slot, the name and
+	 * twist that every cubie and twist takes when that one is the reference.
+	 */
+	private static final int[] RELABEL = new int[CUBIE_TWISTS_NUMBER * CUBIE_TWISTS_NUMBER];
+
+	/**
+	 * For each slot, a rotation that brings it to the upper back left one.
+	 */
+	private static final int[] REFERENCE_SYMMETRY = new int[PocketCube.CUBIES_NUMBER];
+
+	/**
+	 * Class of every permutation.
+	 */
+	private static final int[] PERMUTATION_CLASS = new int[MoveTables.PERMUTATIONS_NUMBER];
+
+	/**
+	 * Symmetry that sends every permutation to the representative of its
+	 * class.
+	 */
+	private static final byte[] PERMUTATION_SYMMETRY = new byte[MoveTables.PERMUTATIONS_NUMBER];
+
+	/**
+	 * For every permutation and slot, the slot where the symmetry of
+	 * PERMUTATION_SYMMETRY takes the cubie found there.
+	 */
+	private static final byte[] REPRESENTATIVE_SLOT = new byte[MoveTables.PERMUTATIONS_NUMBER * PocketCube.CUBIES_NUMBER];
+
+	/**
+	 * For every permutation and slot, the twist that the symmetry of
+	 * PERMUTATION_SYMMETRY adds to the cubie found there, once the twist has
+	 * been negated for a reflection.
+	 */
+	private static final byte[] REPRESENTATIVE_TWIST = new byte[MoveTables.PERMUTATIONS_NUMBER * PocketCube.CUBIES_NUMBER];
+
+	/**
+	 * For every permutation class, one bit for each symmetry other than the
+	 * identity that keeps the upper back left slot and the representative
+	 * permutation as they are.
+	 */
+	private static final long[] CLASS_STABILIZER = new long[MoveTables.PERMUTATIONS_NUMBER];
+
+	/**
+	 * Smallest permutation of every class, in increasing order.
+	 */
+	private static int[] PERMUTATION_REPRESENTATIVE;
+
+	static
+	{
+		init();
+	}
+
+	/**
+	 * Number of permutation classes.
+	 */
+	public static final int PERMUTATION_CLASSES_NUMBER = PERMUTATION_REPRESENTATIVE.length;
+}
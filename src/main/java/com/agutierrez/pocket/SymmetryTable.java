@@ -0,0 +1,186 @@
+package com.agutierrez.pocket;
+
+public class SymmetryTable implements Distances
+{
+	/**
+	 * Creates a table from the representatives of every class and their
+	 * packed distances, as filled by generate.
+	 */
+	private SymmetryTable(long[] representatives, int[] ranks, byte[] table)
+	{
+		this.representatives = representatives;
+		this.ranks = ranks;
+		this.table = table;
+	}
+
+	/**
+	 * Keeps the distances of the representatives of the symmetry classes.
+	 * Every other state is a conjugate of one of those, so this is all that is
+	 * needed to know the distance of any state.
+	 *
+	 * @param distances
+	 *            The full distance table.
+	 * @return The table with the distances of the representatives.
+	 */
+	public static SymmetryTable generate(DistanceTable distances)
+	{
+		long[] representatives = new long[(ENTRIES_NUMBER + 63) >>> 6];
+		int[] ranks = new int[((representatives.length - 1) >>> RANK_SHIFT) + 1];
+		int count = 0;
+		for (int entry = 0; entry < ENTRIES_NUMBER; entry++)
+		{
+			if ((entry & ((64 << RANK_SHIFT) - 1)) == 0)
+			{
+				ranks[entry >>> (6 + RANK_SHIFT)] = count;
+			}
+			if (Symmetry.getRepresentativeEntry(getIndex(entry)) == entry)
+			{
+				representatives[entry >>> 6] |= 1L << entry;
+				count++;
+			}
+		}
+
+		byte[] table = new byte[(count + 1) / 2];
+		int rank = 0;
+		for (int entry = 0; entry < ENTRIES_NUMBER; entry++)
+		{
+			if ((representatives[entry >>> 6] & (1L << entry)) != 0)
+			{
+				int shift = (rank & 1) << 2;
+				table[rank >> 1] |= distances.getDistance(getIndex(entry)) << shift;
+				rank++;
+			}
+		}
+		return new SymmetryTable(representatives, ranks, table);
+	}
+
+	/**
+	 * Convenience method that builds the full distance table and keeps only
+	 * the distances of the representatives.
+	 */
+	public static SymmetryTable generate()
+	{
+		return generate(DistanceTable.generate());
+	}
+
+	/**
+	 * Returns the minimum number of half turns needed to solve the state with
+	 * the given index. The state is first replaced by the representative of
+	 * its class, whose position among the representatives is found by
+	 * counting the bits set before it.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The distance to the solved state, between 0 and
+	 *         DistanceTable.MAX_DEPTH.
+	 */
+	@Override
+	public int getDistance(int index)
+	{
+		int entry = Symmetry.getRepresentativeEntry(index);
+		int word = entry >>> 6;
+		int rank = ranks[word >>> RANK_SHIFT];
+		for (int w = word & ~((1 << RANK_SHIFT) - 1); w < word; w++)
+		{
+			rank += Long.bitCount(representatives[w]);
+		}
+		rank += Long.bitCount(representatives[word] & ((1L << entry) - 1));
+		return (table[rank >> 1] >> ((rank & 1) << 2)) & 0xF;
+	}
+
+	/**
+	 * Convenience method that returns the minimum number of half turns needed
+	 * to solve the given pocket cube.
+	 */
+	public int getDistance(PocketCube rubik)
+	{
+		return getDistance(MoveTables.getIndex(rubik));
+	}
+
+	/**
+	 * Returns an optimal solution for the state with the given index, walking
+	 * down to the solved state one move at a time as DistanceTable.solve does.
+	 *
+	 * @param index
+	 *            Index of the state, as returned by MoveTables.getIndex.
+	 * @return The moves that solve the given state.
+	 */
+	public String solve(int index)
+	{
+		return DistanceTable.solve(this, index);
+	}
+
+	/**
+	 * Convenience method that returns an optimal solution for the given pocket
+	 * cube.
+	 */
+	public String solve(PocketCube rubik)
+	{
+		return solve(MoveTables.getIndex(rubik));
+	}
+
+	/**
+	 * Returns the number of symmetry classes, which is the number of
+	 * distances stored.
+	 */
+	public int getClassesNumber()
+	{
+		int count = 0;
+		for (long word : representatives)
+		{
+			count += Long.bitCount(word);
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of bytes taken by the distances and the bits that
+	 * tell which states are representatives, about a fifteenth of
+	 * DistanceTable.BYTES_NUMBER. The distances alone take a 48th of it.
+	 */
+	public int getSize()
+	{
+		return 8 * representatives.length + 4 * ranks.length + table.length;
+	}
+
+	/**
+	 * Returns the index of the state at the given position among the states
+	 * whose permutation represents its permutation class.
+	 */
+	private static int getIndex(int entry)
+	{
+		int permutation = Symmetry.getPermutationRepresentative(entry / MoveTables.ORIENTATIONS_NUMBER);
+		return permutation * MoveTables.ORIENTATIONS_NUMBER + entry % MoveTables.ORIENTATIONS_NUMBER;
+	}
+
+	/**
+	 * Number of states whose permutation represents its permutation class,
+	 * among which the representatives of the symmetry classes are found.
+	 */
+	public static final int ENTRIES_NUMBER = Symmetry.PERMUTATION_CLASSES_NUMBER * MoveTables.ORIENTATIONS_NUMBER;
+
+	/**
+	 * The number of representatives before each of them is counted once every
+	 * 2 to the RANK_SHIFT words of representatives.
+	 */
+	private static final int RANK_SHIFT = 3;
+
+	/**
+	 * One bit for every state whose permutation represents its permutation
+	 * class, set if the state represents its symmetry class.
+	 */
+	private final long[] representatives;
+
+	/**
+	 * Number of representatives before every block of words of
+	 * representatives.
+	 */
+	private final int[] ranks;
+
+	/**
+	 * Distance of the representatives, 4 bits each, in increasing order. The
+	 * representative with an even rank is stored in the lower 4 bits of the
+	 * byte.
+	 */
+	private final byte[] table;
+}
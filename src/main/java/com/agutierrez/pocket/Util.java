@@ -328,6 +328,13 @@ public class Util {
 	 */
 	public static int[] getNthPermutation(int index, int size)
 	{
+		if (size <= MAX_RANK_SIZE)
+		{
+			int[] result = new int[size];
+			unrank(index, size, result);
+			return result;
+		}
+
 		int factoradic = toFactoradic(index);
 		int [] arr = new int[size];
 		int [] result = new int[size];
@@ -361,6 +368,19 @@ public class Util {
 	 */
 	public static String getNthPermutationString(int index, int size)
 	{
+		if (size <= MAX_RANK_SIZE)
+		{
+			int[] permutation = new int[size];
+			char[] result = new char[size];
+			unrank(index, size, permutation);
+			for (int i = 0; i < size; i++)
+			{
+				// 0 is already taken, this way we ensure that we don't repeat 0.
+				result[i] = digits[permutation[i] + 1];
+			}
+			return new String(result);
+		}
+
 		int factoradic = toFactoradic(index);
 		int [] arr = new int[size];
 		String result = "";
@@ -395,6 +415,11 @@ public class Util {
 	 */
 	public static int getPermutationIndex(int[] permutation)
 	{
+		if (permutation.length <= MAX_RANK_SIZE)
+		{
+			return rank(permutation, permutation.length);
+		}
+
 		int[] aux = new int[permutation.length];
 		
 		String x = "";
@@ -430,6 +455,117 @@ public class Util {
 		return res;
 	}
 
+	/**
+	 * Returns the index of the given permutation in the Lehmer code without
+	 * allocating. The digit of each element is the element minus the number
+	 * of smaller elements already seen, which is counted with a table on a
+	 * bit mask of the elements seen so far.
+	 * 
+	 * @param permutation
+	 *            Array whose first size elements are a permutation of the
+	 *            numbers from 0 to size - 1.
+	 * @param size
+	 *            Number of elements in the permutation, at most MAX_RANK_SIZE.
+	 * @return The index of the given permutation in the Lehmer code.
+	 */
+	public static int rank(int[] permutation, int size)
+	{
+		int result = 0;
+		int seen = 0;
+		for (int i = 0; i < size; i++)
+		{
+			int element = permutation[i];
+			int digit = element - BIT_COUNT[seen & ((1 << element) - 1)];
+			result += digit * FACTORIALS[size - 1 - i];
+			seen |= 1 << element;
+		}
+		return result;
+	}
+
+	/**
+	 * Writes the nth permutation in the Lehmer code into the given array
+	 * without allocating. Each digit of the index selects one of the elements
+	 * not used yet, which is found with a table on a bit mask of the available
+	 * elements.
+	 * 
+	 * @param index
+	 *            nth permutation, between 0 and size! - 1.
+	 * @param size
+	 *            Number of elements in the permutation, at most MAX_RANK_SIZE.
+	 * @param permutation
+	 *            Array where the permutation is written.
+	 */
+	public static void unrank(int index, int size, int[] permutation)
+	{
+		int available = (1 << size) - 1;
+		for (int i = 0; i < size; i++)
+		{
+			int factorial = FACTORIALS[size - 1 - i];
+			int digit = index / factorial;
+			index -= digit * factorial;
+
+			int element = NTH_BIT[(available << 3) | digit];
+			permutation[i] = element;
+			available &= ~(1 << element);
+		}
+	}
+
+	/**
+	 * Encodes the orientations of the 8 cubies as a number in base 3 without
+	 * going through a String. The first cubie is fixed and the second one is
+	 * determined by the rest, so only the last six are stored, the third one
+	 * being the most significant digit.
+	 * 
+	 * @param orientation
+	 *            Array with the orientation of each of the 8 cubies.
+	 * @return A number between 0 and 728.
+	 */
+	public static int encodeOrientation(int[] orientation)
+	{
+		return ((((orientation[2] * 3 + orientation[3]) * 3 + orientation[4]) * 3
+			+ orientation[5]) * 3 + orientation[6]) * 3 + orientation[7];
+	}
+
+	/**
+	 * Decodes a number in base 3 into the orientations of the 8 cubies. The
+	 * first cubie is fixed, and the orientation of the second one is chosen so
+	 * that the sum of all of them is 0 modulus 3.
+	 * 
+	 * @param orientation
+	 *            A number between 0 and 728.
+	 * @param result
+	 *            Array where the orientation of each of the 8 cubies is
+	 *            written.
+	 */
+	public static void decodeOrientation(int orientation, int[] result)
+	{
+		int sum = 0;
+		for (int i = ORIENTATION_DIGITS - 1; i > 1; i--)
+		{
+			int digit = orientation % 3;
+			result[i] = digit;
+			sum += digit;
+			orientation = orientation / 3;
+		}
+		result[1] = (3 - sum % 3) % 3;
+		result[0] = 0;
+	}
+
+	/**
+	 * Same as decodeOrientation, but copying the digits from a precomputed
+	 * table instead of dividing.
+	 * 
+	 * @param orientation
+	 *            A number between 0 and 728.
+	 * @param result
+	 *            Array where the orientation of each of the 8 cubies is
+	 *            written.
+	 */
+	public static void lookupOrientation(int orientation, int[] result)
+	{
+		System.arraycopy(ORIENTATIONS, orientation * ORIENTATION_DIGITS, result, 0, ORIENTATION_DIGITS);
+	}
+
 	/**
 	 * Determines the orientation of a given string that represents a number in
 	 * the given radix base. The sum of all orientations should always be 0
@@ -459,4 +595,65 @@ public class Util {
         '0' , '1' , '2' , '3' , '4' , '5' ,
         '6' , '7' , '8' , '9'
     };
+
+	/**
+	 * Largest permutation that rank and unrank can handle.
+	 */
+	public static final int MAX_RANK_SIZE = 8;
+
+	/**
+	 * Factorials from 0! to 8!.
+	 */
+	private static final int[] FACTORIALS = new int[MAX_RANK_SIZE + 1];
+
+	/**
+	 * Number of bits set in each byte.
+	 */
+	private static final byte[] BIT_COUNT = new byte[1 << MAX_RANK_SIZE];
+
+	/**
+	 * Position of the nth bit set in each byte, at (byte << 3) | n.
+	 */
+	private static final byte[] NTH_BIT = new byte[(1 << MAX_RANK_SIZE) * MAX_RANK_SIZE];
+
+	/**
+	 * Number of cubies whose orientation is encoded.
+	 */
+	private static final int ORIENTATION_DIGITS = 8;
+
+	/**
+	 * Orientation of the 8 cubies for each of the 729 encoded orientations,
+	 * as decodeOrientation would write them.
+	 */
+	private static final int[] ORIENTATIONS = new int[729 * ORIENTATION_DIGITS];
+
+	static
+	{
+		int[] orientation = new int[ORIENTATION_DIGITS];
+		for (int i = 0; i < 729; i++)
+		{
+			decodeOrientation(i, orientation);
+			System.arraycopy(orientation, 0, ORIENTATIONS, i * ORIENTATION_DIGITS, ORIENTATION_DIGITS);
+		}
+
+		FACTORIALS[0] = 1;
+		for (int i = 1; i < FACTORIALS.length; i++)
+		{
+			FACTORIALS[i] = FACTORIALS[i - 1] * i;
+		}
+
+		for (int mask = 0; mask < BIT_COUNT.length; mask++)
+		{
+			int count = 0;
+			for (int bit = 0; bit < MAX_RANK_SIZE; bit++)
+			{
+				if ((mask & (1 << bit)) != 0)
+				{
+					NTH_BIT[(mask << 3) | count] = (byte) bit;
+					count++;
+				}
+			}
+			BIT_COUNT[mask] = (byte) count;
+		}
+	}
 }
@@ -0,0 +1,133 @@
+package com.agutierrez.pocket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+public class ScrambleGeneratorTest
+{
+	/**
+	 * The same seed and count give the same file whatever the number of
+	 * threads, with and without depths.
+	 */
+	@Test
+	public void testOutputDoesNotDependOnThreads() throws IOException
+	{
+		DistanceTable table = DistanceTable.generate();
+		for (DistanceTable depths : new DistanceTable[] { null, table })
+		{
+			byte[] expected = generate(SEED, COUNT, 1, depths);
+			for (int threads : new int[] { 3, 8 })
+			{
+				assertArrayEquals(expected, generate(SEED, COUNT, threads, depths));
+			}
+		}
+	}
+
+	/**
+	 * A shorter run writes the first positions of a longer one, and another
+	 * seed writes other positions.
+	 */
+	@Test
+	public void testShorterRunIsPrefix() throws IOException
+	{
+		byte[] longer = generate(SEED, COUNT, 4, null);
+		byte[] shorter = generate(SEED, COUNT / 2, 4, null);
+		int records = PositionFile.COORDINATE_BYTES * (COUNT / 2);
+		assertArrayEquals(Arrays.copyOfRange(longer, PositionFile.HEADER_SIZE, PositionFile.HEADER_SIZE + records),
+			Arrays.copyOfRange(shorter, PositionFile.HEADER_SIZE, shorter.length));
+		assertFalse(Arrays.equals(longer, generate(SEED + 1, COUNT, 4, null)));
+	}
+
+	/**
+	 * Every position written is a valid state, and its depth, when written,
+	 * is the one of the distance table.
+	 */
+	@Test
+	public void testPositionsAreValid() throws IOException
+	{
+		DistanceTable table = DistanceTable.generate();
+		File file = File.createTempFile("scrambles", ".bin");
+		try
+		{
+			write(file, SEED, COUNT, 4, table);
+			PositionFile positions = PositionFile.open(file);
+			try
+			{
+				assertEquals(COUNT, positions.size());
+				int[] coordinates = new int[COUNT];
+				byte[] depths = new byte[COUNT];
+				assertEquals(COUNT, positions.read(coordinates, depths));
+				for (int i = 0; i < COUNT; i++)
+				{
+					int index = MoveTables.toIndex(coordinates[i]);
+					assertEquals(coordinates[i], MoveTables.toCoordinate(index));
+					assertEquals(table.getDistance(index), depths[i]);
+				}
+			}
+			finally
+			{
+				positions.close();
+			}
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Generates a position file and returns its contents.
+	 */
+	private static byte[] generate(long seed, int count, int threads, DistanceTable table) throws IOException
+	{
+		File file = File.createTempFile("scrambles", ".bin");
+		try
+		{
+			write(file, seed, count, threads, table);
+			return Files.readAllBytes(file.toPath());
+		}
+		finally
+		{
+			file.delete();
+		}
+	}
+
+	/**
+	 * Writes a position file with the given number of threads.
+	 */
+	private static void write(File file, long seed, int count, int threads, DistanceTable table) throws IOException
+	{
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		PositionWriter writer = new PositionWriter(file, table != null);
+		try
+		{
+			ScrambleGenerator.generate(seed, count, executor, table, writer);
+		}
+		finally
+		{
+			writer.close();
+			executor.shutdown();
+		}
+	}
+
+	/**
+	 * Seed of every file of the tests.
+	 */
+	private static final long SEED = 2014;
+
+	/**
+	 * Number of positions of every file, enough for a few chunks and a
+	 * partial one.
+	 */
+	private static final int COUNT = 3 * (1 << 16) + 1234;
+}
@@ -0,0 +1,140 @@
+package com.agutierrez.pocket;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+
+public class ScramblerTest
+{
+	/**
+	 * The distances of the drawn states follow the distribution of the whole
+	 * space. Depths 0 to 4 hold too few states to be tested apart, so they
+	 * are counted as one bin.
+	 */
+	@Test
+	public void testDistanceHistogram()
+	{
+		DistanceTable table = DistanceTable.generate();
+		int[] histogram = table.getHistogram();
+		long[] expected = new long[histogram.length - FIRST_DEPTH_BIN];
+		long[] observed = new long[expected.length];
+		for (int depth = 0; depth < histogram.length; depth++)
+		{
+			expected[Math.max(0, depth - FIRST_DEPTH_BIN)] += histogram[depth];
+		}
+
+		Scrambler scrambler = new Scrambler(SEED);
+		for (int i = 0; i < DRAWS; i++)
+		{
+			int depth = table.getDistance(MoveTables.toIndex(scrambler.nextCoordinate()));
+			observed[Math.max(0, depth - FIRST_DEPTH_BIN)]++;
+		}
+		assertFollows(observed, expected, MoveTables.STATES_NUMBER);
+	}
+
+	/**
+	 * Every permutation and every orientation is drawn equally often.
+	 */
+	@Test
+	public void testCoordinatesAreUniform()
+	{
+		long[] permutations = new long[MoveTables.PERMUTATIONS_NUMBER];
+		long[] orientations = new long[MoveTables.ORIENTATIONS_NUMBER];
+		Scrambler scrambler = new Scrambler(SEED);
+		for (int i = 0; i < DRAWS; i++)
+		{
+			int coordinate = scrambler.nextCoordinate();
+			permutations[(coordinate & PocketCube.PERMUTATION_MASK) >> PocketCube.PERMUTATION_OFFSET]++;
+			orientations[(coordinate & PocketCube.ORIENTATION_MASK) >> PocketCube.ORIENTATION_OFFSET]++;
+		}
+
+		long[] expected = new long[permutations.length];
+		Arrays.fill(expected, 1);
+		assertFollows(permutations, expected, permutations.length);
+		expected = new long[orientations.length];
+		Arrays.fill(expected, 1);
+		assertFollows(orientations, expected, orientations.length);
+	}
+
+	/**
+	 * A scrambled cube has the stickers of the coordinate drawn, and the same
+	 * seed always gives the same states, also after splitting.
+	 */
+	@Test
+	public void testScrambleIsReproducible()
+	{
+		Scrambler first = new Scrambler(SEED);
+		Scrambler second = new Scrambler(SEED);
+		PocketCube rubik = new PocketCube();
+		for (int i = 0; i < 1000; i++)
+		{
+			int coordinate = first.nextCoordinate();
+			second.scramble(rubik);
+			assertEquals(coordinate, rubik.mapToInt());
+		}
+
+		Scrambler left = new Scrambler(SEED).split();
+		Scrambler right = new Scrambler(SEED).split();
+		for (int i = 0; i < 1000; i++)
+		{
+			assertEquals(left.nextCoordinate(), right.nextCoordinate());
+		}
+	}
+
+	/**
+	 * Checks with a chi-square test that the observed counts follow the
+	 * expected ones, failing only when the statistic exceeds what happens
+	 * once in a thousand times by chance. The draws are seeded, so the
+	 * result does not change from one run to the next.
+	 *
+	 * @param observed
+	 *            Number of draws in each bin.
+	 * @param expected
+	 *            Weight of each bin.
+	 * @param total
+	 *            Sum of the weights.
+	 */
+	private static void assertFollows(long[] observed, long[] expected, long total)
+	{
+		long draws = 0;
+		for (long count : observed)
+		{
+			draws += count;
+		}
+		double statistic = 0;
+		for (int i = 0; i < observed.length; i++)
+		{
+			double mean = (double) draws * expected[i] / total;
+			statistic += (observed[i] - mean) * (observed[i] - mean) / mean;
+		}
+		int freedom = observed.length - 1;
+		// Wilson-Hilferty approximation of the 99.9th percentile.
+		double z = 2 / (9.0 * freedom);
+		double critical = freedom * Math.pow(1 - z + Z_999 * Math.sqrt(z), 3);
+		assertTrue("Chi-square " + statistic + " with " + freedom + " degrees of freedom exceeds " + critical,
+			statistic < critical);
+	}
+
+	/**
+	 * Seed of every scrambler of the tests.
+	 */
+	private static final long SEED = 2014;
+
+	/**
+	 * Number of states drawn by the distribution tests.
+	 */
+	private static final int DRAWS = 2000000;
+
+	/**
+	 * Deepest depth counted in the first bin of the histogram.
+	 */
+	private static final int FIRST_DEPTH_BIN = 4;
+
+	/**
+	 * Quantile of the standard normal distribution at 99.9%.
+	 */
+	private static final double Z_999 = 3.090;
+}
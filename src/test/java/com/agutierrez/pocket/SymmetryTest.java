@@ -0,0 +1,74 @@
+package com.agutierrez.pocket;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+public class SymmetryTest
+{
+	/**
+	 * Every rotation and reflection keeps the distance of every state, for
+	 * one state out of STRIDE.
+	 */
+	@Test
+	public void testConjugatesKeepDistance()
+	{
+		DistanceTable table = DistanceTable.generate();
+		for (int index = 0; index < MoveTables.STATES_NUMBER; index += STRIDE)
+		{
+			int distance = table.getDistance(index);
+			for (int symmetry = 0; symmetry < Symmetry.SYMMETRIES_NUMBER; symmetry++)
+			{
+				assertEquals(distance, table.getDistance(Symmetry.conjugate(index, symmetry)));
+			}
+		}
+	}
+
+	/**
+	 * Every conjugate of a state has the same representative, which is the
+	 * smallest of them.
+	 */
+	@Test
+	public void testRepresentativeIsShared()
+	{
+		for (int index = 0; index < MoveTables.STATES_NUMBER; index += STRIDE * STRIDE * STRIDE)
+		{
+			int representative = Symmetry.getRepresentative(index);
+			int entry = Symmetry.getPermutationClass(representative / MoveTables.ORIENTATIONS_NUMBER)
+				* MoveTables.ORIENTATIONS_NUMBER + representative % MoveTables.ORIENTATIONS_NUMBER;
+			for (int symmetry = 0; symmetry < Symmetry.SYMMETRIES_NUMBER; symmetry++)
+			{
+				int conjugated = Symmetry.conjugate(index, symmetry);
+				assertEquals(representative, Symmetry.getRepresentative(conjugated));
+				assertEquals(entry, Symmetry.getRepresentativeEntry(conjugated));
+			}
+		}
+	}
+
+	/**
+	 * The symmetry table keeps one distance per class of the 48 symmetries and
+	 * gives back the distance of every state.
+	 */
+	@Test
+	public void testTableMatchesDistanceTable()
+	{
+		DistanceTable table = DistanceTable.generate();
+		SymmetryTable symmetries = SymmetryTable.generate(table);
+		assertEquals(CLASSES_NUMBER, symmetries.getClassesNumber());
+		for (int index = 0; index < MoveTables.STATES_NUMBER; index++)
+		{
+			assertEquals(table.getDistance(index), symmetries.getDistance(index));
+		}
+	}
+
+	/**
+	 * Number of classes of states under the rotations and reflections.
+	 */
+	private static final int CLASSES_NUMBER = 77802;
+
+	/**
+	 * Distance between the states checked, prime to the number of
+	 * orientations so that every orientation is reached.
+	 */
+	private static final int STRIDE = 7;
+}
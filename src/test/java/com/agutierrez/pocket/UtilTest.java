@@ -0,0 +1,159 @@
+package com.agutierrez.pocket;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+public class UtilTest
+{
+	/**
+	 * Every permutation of up to 8 elements is unranked and ranked back to
+	 * its own index, through both the public methods and rank and unrank.
+	 */
+	@Test
+	public void testRoundTrip()
+	{
+		for (int size = 1; size <= Util.MAX_RANK_SIZE; size++)
+		{
+			int[] permutation = new int[size];
+			for (int index = 0; index < Util.factorial(size); index++)
+			{
+				assertEquals(index, Util.getPermutationIndex(Util.getNthPermutation(index, size)));
+				Util.unrank(index, size, permutation);
+				assertEquals(index, Util.rank(permutation, size));
+			}
+		}
+	}
+
+	/**
+	 * getNthPermutation and getNthPermutationString give the same output as
+	 * the code they replaced, kept below, for every permutation of up to 8
+	 * elements.
+	 */
+	@Test
+	public void testNthPermutationMatchesBaseline()
+	{
+		for (int size = 1; size <= Util.MAX_RANK_SIZE; size++)
+		{
+			for (int index = 0; index < Util.factorial(size); index++)
+			{
+				assertArrayEquals(getBaselinePermutation(index, size), Util.getNthPermutation(index, size));
+				assertEquals(getBaselinePermutationString(index, size), Util.getNthPermutationString(index, size));
+			}
+		}
+	}
+
+	/**
+	 * getPermutationIndex gives the same output as the code it replaced for
+	 * the permutations of 7 elements starting with 0, the indexes below 720.
+	 * The old code never counted 0 as a smaller element, so for the other
+	 * indexes it was wrong and testRoundTrip checks the new output instead.
+	 */
+	@Test
+	public void testPermutationIndexMatchesBaseline() throws Exception
+	{
+		for (int index = 0; index < Util.factorial(PocketCube.CUBIES_NUMBER - 1); index++)
+		{
+			int[] permutation = Util.getNthPermutation(index, PocketCube.CUBIES_NUMBER);
+			assertEquals(getBaselinePermutationIndex(permutation), Util.getPermutationIndex(permutation));
+		}
+	}
+
+	/**
+	 * mapToInt and mapFromInt, which rank and unrank the permutation of the
+	 * cubies, give the same output as before the change for a fixed set of
+	 * scrambles. The checksum was computed with the code before the change.
+	 */
+	@Test
+	public void testCoordinatesMatchBaseline() throws Exception
+	{
+		Random random = new Random(2014);
+		String[] moves = PocketCubeConstants.HALF_TURN_METRIC_MOVES;
+		long checksum = 0;
+		for (int k = 0; k < 1000; k++)
+		{
+			PocketCube rubik = new PocketCube();
+			for (int i = 0; i < 25; i++)
+			{
+				rubik.applySequence(moves[random.nextInt(moves.length)]);
+			}
+			int coordinate = rubik.mapToInt();
+			checksum = checksum * 31 + coordinate;
+			checksum = checksum * 31 + rubik.mapFromInt(coordinate, rubik.getTarget()).hashCode();
+		}
+		assertEquals(BASELINE_COORDINATES_CHECKSUM, checksum);
+	}
+
+	/**
+	 * getNthPermutation as it was before rank and unrank.
+	 */
+	private static int[] getBaselinePermutation(int index, int size)
+	{
+		int factoradic = Util.toFactoradic(index);
+		int[] arr = new int[size];
+		int[] result = new int[size];
+		List<Integer> numbers = new ArrayList<Integer>();
+		for (int i = 0; i < size; i++)
+		{
+			numbers.add(i);
+		}
+		for (int i = arr.length - 1; factoradic > 0; factoradic = factoradic / 10)
+		{
+			arr[i] = factoradic % 10;
+			i--;
+		}
+		for (int i = 0; i < arr.length; i++)
+		{
+			result[i] = numbers.remove(arr[i]).intValue();
+		}
+		return result;
+	}
+
+	/**
+	 * getNthPermutationString as it was before rank and unrank.
+	 */
+	private static String getBaselinePermutationString(int index, int size)
+	{
+		StringBuilder result = new StringBuilder();
+		for (int element : getBaselinePermutation(index, size))
+		{
+			result.append(element + 1);
+		}
+		return result.toString();
+	}
+
+	/**
+	 * getPermutationIndex as it was before rank and unrank.
+	 */
+	private static int getBaselinePermutationIndex(int[] permutation) throws Exception
+	{
+		int[] aux = new int[permutation.length];
+		String x = "";
+		for (int i = permutation.length - 1; i > -1; i--)
+		{
+			int j = 0;
+			int counter = 0;
+			while (j < permutation[i])
+			{
+				if (aux[j] > 0)
+				{
+					counter++;
+				}
+				j++;
+			}
+			aux[j] = permutation[i];
+			x = counter + x;
+		}
+		return Util.parseFactorial(x);
+	}
+
+	/**
+	 * Checksum of testCoordinatesMatchBaseline before the change.
+	 */
+	private static final long BASELINE_COORDINATES_CHECKSUM = 9002938006875829597L;
+}